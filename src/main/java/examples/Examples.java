@@ -21,6 +21,7 @@ import io.vertx.camel.CamelBridge;
 import io.vertx.camel.CamelBridgeOptions;
 import io.vertx.camel.InboundMapping;
 import io.vertx.camel.OutboundMapping;
+import io.vertx.camel.TypedMessage;
 import org.apache.camel.*;
 import org.apache.camel.builder.RouteBuilder;
 import org.apache.camel.impl.DefaultCamelContext;
@@ -69,6 +70,8 @@ public class Examples {
             .addOutboundMapping(OutboundMapping.fromVertx("eventbus-address").toCamel(endpoint)
                 .withoutHeadersCopy())
             .addOutboundMapping(OutboundMapping.fromVertx("eventbus-address").toCamel(endpoint))
+            .addOutboundMapping(OutboundMapping.fromVertx("eventbus-address").toCamel(endpoint)
+                .withBodyType(String.class))
     );
   }
 
@@ -166,10 +169,27 @@ public class Examples {
     // response == How are you ?
   }
 
+  public void exampleTypedHeaders(Vertx vertx, CamelContext camel) {
+    CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addInboundMapping(InboundMapping.fromCamel("direct:stuff").toVertx("eventbus-address")
+            .setTypedHeaders(true)));
+
+    vertx.eventBus().<TypedMessage>consumer("eventbus-address", message -> {
+      Object payload = message.body().body();
+      Integer count = (Integer) message.body().header("count");
+    });
+  }
+
   public void registerCodec(Vertx vertx, MessageCodec<Person, Person> codec) {
     vertx.eventBus().registerDefaultCodec(Person.class, codec);
   }
 
+  public void examplePassThrough(Vertx vertx, CamelContext camel) {
+    CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addInboundMapping(InboundMapping.fromCamel("direct:stuff").toVertx("eventbus-address")
+            .withPassThroughCodec()));
+  }
+
   private class Person {
 
   }
@@ -19,6 +19,9 @@ import io.vertx.camel.impl.CamelBridgeImpl;
 import io.vertx.codegen.annotations.VertxGen;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.core.streams.WriteStream;
 
 /**
  * Camel Bridge facade.
@@ -53,4 +56,60 @@ public interface CamelBridge {
    */
   Future<Void> stop();
 
+  /**
+   * Gets a snapshot of the metrics of the bridge, with the following entries:
+   * <ul>
+   *   <li>{@code outbound}: an array with an entry per outbound mapping, described below</li>
+   *   <li>{@code reapedExchanges}: the number of Camel exchanges completed because they waited too long for an event
+   *   bus reply</li>
+   * </ul>
+   * Each outbound mapping entry contains:
+   * <ul>
+   *   <li>{@code address}: the event bus address, ending with {@code *} for address prefixes</li>
+   *   <li>{@code uri}: the endpoint URI, the URIs, or the URI template</li>
+   *   <li>{@code inFlight}: the number of messages being processed</li>
+   *   <li>{@code timeouts}: the number of messages that have timed out</li>
+   *   <li>{@code concurrencyLimit}: the concurrency limit, {@code -1} if unbounded</li>
+   *   <li>{@code pending}: the number of messages waiting for the concurrency limit</li>
+   *   <li>{@code rejected}: the number of messages rejected because the pending queue was full</li>
+   *   <li>{@code rateRejected}: the number of messages rejected because the rate limit queue was full</li>
+   *   <li>{@code circuitState}: the state of the circuit breaker, {@code null} without breaker</li>
+   *   <li>{@code shortCircuited}: the number of messages rejected by the circuit breaker</li>
+   *   <li>{@code cacheHits}, {@code cacheMisses}, {@code cacheSize}: the hits, misses and size of the reply
+   *   cache</li>
+   *   <li>{@code coalesced}: the number of coalesced requests</li>
+   *   <li>{@code duplicates}: the number of duplicated messages</li>
+   *   <li>{@code endpoints}, {@code endpointEvictions}: the number of cached and evicted endpoints, for mappings using
+   *   a URI template</li>
+   *   <li>{@code targets}: an array describing each endpoint, for mappings distributing the messages over several
+   *   endpoints</li>
+   *   <li>{@code spoolSize}: the number of messages waiting in the spool</li>
+   *   <li>{@code spoolDropped}: the number of spooled messages dropped because they cannot be replayed</li>
+   * </ul>
+   *
+   * @return the metrics
+   */
+  JsonObject metrics();
+
+  /**
+   * Creates a stream emitting the bodies of the exchanges received from a Camel endpoint. The Camel consumer is
+   * started when a handler is set on the stream. While the stream is paused, the exchanges are not completed, so the
+   * consumer stops receiving new ones (when the endpoint supports it). The stream is closed when the bridge is stopped.
+   *
+   * @param uri the endpoint uri
+   * @return the stream
+   */
+  ReadStream<Object> readStream(String uri);
+
+  /**
+   * Creates a stream sending each item to a Camel endpoint, as the body of an {@code InOnly} exchange. A
+   * {@link TypedMessage} item also sets the headers of the exchange. The write queue is full when the number of
+   * exchanges being processed reaches the maximum size. The Camel producer is stopped when the stream is ended, or
+   * when the bridge is stopped.
+   *
+   * @param uri the endpoint uri
+   * @return the stream
+   */
+  WriteStream<Object> writeStream(String uri);
+
 }
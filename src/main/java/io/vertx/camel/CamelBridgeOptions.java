@@ -38,6 +38,27 @@ public class CamelBridgeOptions {
   private List<InboundMapping> inbound = new ArrayList<>();
   private List<OutboundMapping> outbound = new ArrayList<>();
 
+  /**
+   * The default compression threshold of the {@link TypedMessage} codec: compression is disabled.
+   */
+  public static final int DEFAULT_COMPRESSION_THRESHOLD = -1;
+
+  /**
+   * The default maximum size of a compressed {@link TypedMessage} once decompressed: 16 MB.
+   */
+  public static final int DEFAULT_MAX_DECOMPRESSED_SIZE = 16 * 1024 * 1024;
+
+  private List<String> headerDictionary = new ArrayList<>();
+  private int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+  private int maxDecompressedSize = DEFAULT_MAX_DECOMPRESSED_SIZE;
+
+  /**
+   * The default maximum lifetime of the exchanges waiting for an event bus reply: unbounded.
+   */
+  public static final long DEFAULT_MAX_EXCHANGE_LIFETIME = -1;
+
+  private long maxExchangeLifetime = DEFAULT_MAX_EXCHANGE_LIFETIME;
+
   private final CamelContext context;
 
   /**
@@ -96,4 +117,91 @@ public class CamelBridgeOptions {
   public List<OutboundMapping> getOutboundMappings() {
     return outbound;
   }
+
+  /**
+   * @return the header names encoded as an index when a {@link TypedMessage} is sent over the wire, in addition to
+   * the common Camel headers.
+   */
+  public List<String> getHeaderDictionary() {
+    return headerDictionary;
+  }
+
+  /**
+   * Sets the header names encoded as an index when a {@link TypedMessage} is sent over the wire, in addition to the
+   * common Camel headers. All the nodes of the cluster must use the same dictionary.
+   *
+   * @param headerDictionary the header names, must not be {@code null}
+   * @return the current {@link CamelBridgeOptions}
+   */
+  public CamelBridgeOptions setHeaderDictionary(List<String> headerDictionary) {
+    Objects.requireNonNull(headerDictionary);
+    this.headerDictionary = headerDictionary;
+    return this;
+  }
+
+  /**
+   * @return the size in bytes above which a {@link TypedMessage} sent over the wire is compressed, negative if the
+   * compression is disabled.
+   */
+  public int getCompressionThreshold() {
+    return compressionThreshold;
+  }
+
+  /**
+   * Sets the size in bytes above which a {@link TypedMessage} sent over the wire is compressed. Compression is
+   * disabled by default. All the nodes of the cluster must use the same value.
+   *
+   * @param compressionThreshold the threshold, negative to disable the compression
+   * @return the current {@link CamelBridgeOptions}
+   */
+  public CamelBridgeOptions setCompressionThreshold(int compressionThreshold) {
+    this.compressionThreshold = compressionThreshold;
+    return this;
+  }
+
+  /**
+   * @return the maximum size in bytes of a compressed {@link TypedMessage} received from the wire, once decompressed.
+   */
+  public int getMaxDecompressedSize() {
+    return maxDecompressedSize;
+  }
+
+  /**
+   * Sets the maximum size in bytes of a compressed {@link TypedMessage} received from the wire, once decompressed.
+   * The size is announced by the sender, larger messages are rejected before allocating their content. 16 MB by
+   * default.
+   *
+   * @param maxDecompressedSize the maximum size, must be positive
+   * @return the current {@link CamelBridgeOptions}
+   */
+  public CamelBridgeOptions setMaxDecompressedSize(int maxDecompressedSize) {
+    if (maxDecompressedSize <= 0) {
+      throw new IllegalArgumentException("The maximum decompressed size must be positive");
+    }
+    this.maxDecompressedSize = maxDecompressedSize;
+    return this;
+  }
+
+  /**
+   * @return the maximum time in milliseconds an exchange waits for an event bus reply, negative if unbounded.
+   */
+  public long getMaxExchangeLifetime() {
+    return maxExchangeLifetime;
+  }
+
+  /**
+   * Sets the maximum time in milliseconds an exchange received from a Camel endpoint waits for the reply of the
+   * event bus. Once reached, the exchange is completed with an {@link org.apache.camel.ExchangeTimedOutException},
+   * releasing the Camel consumer, even if the event bus request has not yet timed out. It guards against lost replies
+   * and misconfigured send timeouts. Unbounded by default.
+   * <p>
+   * The deadlines are tracked by a single hashed wheel timer, so they are checked with a precision of about 100 ms.
+   *
+   * @param maxExchangeLifetime the lifetime, negative to disable the guard
+   * @return the current {@link CamelBridgeOptions}
+   */
+  public CamelBridgeOptions setMaxExchangeLifetime(long maxExchangeLifetime) {
+    this.maxExchangeLifetime = maxExchangeLifetime;
+    return this;
+  }
 }
@@ -25,7 +25,27 @@ import org.apache.camel.Endpoint;
 public class CamelMapping {
 
   public static final boolean DEFAULT_HEADERS_COPY = true;
+
+  /**
+   * The event bus header identifying the stream a chunk belongs to, when the bodies are streamed.
+   */
+  public static final String STREAM_ID_HEADER = "vertx-camel-stream-id";
+
+  /**
+   * The event bus header containing the position of a chunk in its stream, starting at 0.
+   */
+  public static final String STREAM_SEQUENCE_HEADER = "vertx-camel-stream-sequence";
+
+  /**
+   * The event bus header set to {@code true} on the last chunk of a stream.
+   */
+  public static final String STREAM_END_HEADER = "vertx-camel-stream-end";
+
   private boolean headersCopy = DEFAULT_HEADERS_COPY;
+  private boolean typedHeaders;
+  private boolean lightweight;
+  private double rateLimit = -1;
+  private int rateLimitBurst = 1;
 
   private String uri;
   private String address;
@@ -77,6 +97,92 @@ public class CamelMapping {
     return this;
   }
 
+  /**
+   * @return whether or not the headers keep their type, by being carried in a {@link TypedMessage} instead of the
+   * event bus message headers.
+   */
+  public boolean isTypedHeaders() {
+    return typedHeaders;
+  }
+
+  /**
+   * Sets whether or not the headers keep their type. {@code false} by default, meaning that the headers are
+   * converted to strings and copied in the event bus message headers.
+   * <p>
+   * When enabled, the event bus message body is a {@link TypedMessage} holding the payload and the typed headers:
+   * on inbound mappings for the messages sent to the event bus, on outbound mappings for the replies.
+   *
+   * @param typedHeaders {@code true} to carry the headers in a {@link TypedMessage}
+   * @return the current {@link CamelMapping}
+   */
+  public CamelMapping setTypedHeaders(boolean typedHeaders) {
+    this.typedHeaders = typedHeaders;
+    return this;
+  }
+
+  /**
+   * @return whether or not the mapping uses the lightweight exchange handling.
+   */
+  public boolean isLightweight() {
+    return lightweight;
+  }
+
+  /**
+   * Sets whether or not the mapping uses the lightweight exchange handling. {@code false} by default.
+   * <p>
+   * This mode is meant for pass-through mappings with simple endpoints. It changes the exchange handling as follows:
+   * <ul>
+   * <li>on inbound mappings, the reply is written on the incoming Camel message (using
+   * {@link org.apache.camel.Exchange#getMessage()}) instead of a new out message, so the request headers are kept in
+   * the reply, and the delivery options are shared between messages when no header is copied;</li>
+   * <li>on outbound mappings, the reply is sent without delivery options when the Camel message has no headers.</li>
+   * </ul>
+   *
+   * @param lightweight {@code true} to enable the lightweight mode
+   * @return the current {@link CamelMapping}
+   */
+  public CamelMapping setLightweight(boolean lightweight) {
+    this.lightweight = lightweight;
+    return this;
+  }
+
+  /**
+   * @return the number of messages per second allowed by the mapping, negative if unlimited.
+   */
+  public double getRateLimit() {
+    return rateLimit;
+  }
+
+  /**
+   * @return the number of messages that can be transferred in a burst when the mapping was idle.
+   */
+  public int getRateLimitBurst() {
+    return rateLimitBurst;
+  }
+
+  /**
+   * Limits the rate of the messages transferred by the mapping, using a token bucket. Unlimited by default.
+   * <p>
+   * The excess messages are delayed, not dropped: on inbound mappings, the Camel exchange is completed once the
+   * message has been sent, so the Camel consumer is slowed down, and the number of delayed exchanges is bounded (see
+   * {@link InboundMapping#setMaxDelayed(int)}). On outbound mappings, the messages wait in a bounded queue (see
+   * {@link OutboundMapping#setMaxDelayed(int)}) until they are allowed, so they are not turned into Camel exchanges in
+   * advance.
+   *
+   * @param permitsPerSecond the number of messages per second, must be strictly positive
+   * @param burst            the number of messages that can be sent at once after an idle period, must be strictly
+   *                         positive
+   * @return the current {@link CamelMapping}
+   */
+  public CamelMapping setRateLimit(double permitsPerSecond, int burst) {
+    if (permitsPerSecond <= 0 || burst <= 0) {
+      throw new IllegalArgumentException("Invalid rate limit, the rate and the burst must be > 0");
+    }
+    this.rateLimit = permitsPerSecond;
+    this.rateLimitBurst = burst;
+    return this;
+  }
+
   /**
    * @return the event bus address.
    */
@@ -0,0 +1,190 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel;
+
+/**
+ * Configures the circuit breaker of an {@link OutboundMapping}.
+ * <p>
+ * The breaker records the outcome of the last {@link #getWindowSize()} messages. Once at least
+ * {@link #getMinimumCalls()} outcomes are recorded, it opens when the percentage of failed messages reaches
+ * {@link #getFailureRateThreshold()}, or the percentage of slow messages reaches {@link #getSlowCallRateThreshold()}.
+ * While open, the messages fail immediately. After {@link #getOpenDuration()}, it lets {@link #getHalfOpenProbes()}
+ * messages through: if they all succeed the breaker closes, otherwise it opens again.
+ */
+public class CircuitBreakerOptions {
+
+  public static final int DEFAULT_WINDOW_SIZE = 20;
+  public static final int DEFAULT_MINIMUM_CALLS = 10;
+  public static final int DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+  public static final long DEFAULT_SLOW_CALL_DURATION = -1;
+  public static final int DEFAULT_SLOW_CALL_RATE_THRESHOLD = 100;
+  public static final long DEFAULT_OPEN_DURATION = 5000;
+  public static final int DEFAULT_HALF_OPEN_PROBES = 1;
+
+  private int windowSize = DEFAULT_WINDOW_SIZE;
+  private int minimumCalls = DEFAULT_MINIMUM_CALLS;
+  private int failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+  private long slowCallDuration = DEFAULT_SLOW_CALL_DURATION;
+  private int slowCallRateThreshold = DEFAULT_SLOW_CALL_RATE_THRESHOLD;
+  private long openDuration = DEFAULT_OPEN_DURATION;
+  private int halfOpenProbes = DEFAULT_HALF_OPEN_PROBES;
+
+  /**
+   * @return the number of outcomes recorded.
+   */
+  public int getWindowSize() {
+    return windowSize;
+  }
+
+  /**
+   * Sets the number of outcomes recorded to compute the failure and slow call rates.
+   *
+   * @param windowSize the size, must be strictly positive
+   * @return the current {@link CircuitBreakerOptions}
+   */
+  public CircuitBreakerOptions setWindowSize(int windowSize) {
+    if (windowSize <= 0) {
+      throw new IllegalArgumentException("Invalid window size, it must be > 0");
+    }
+    this.windowSize = windowSize;
+    return this;
+  }
+
+  /**
+   * @return the number of outcomes required before computing the rates.
+   */
+  public int getMinimumCalls() {
+    return minimumCalls;
+  }
+
+  /**
+   * Sets the number of outcomes required before computing the rates. It avoids opening the breaker on the first
+   * failure.
+   *
+   * @param minimumCalls the number of calls, must be strictly positive
+   * @return the current {@link CircuitBreakerOptions}
+   */
+  public CircuitBreakerOptions setMinimumCalls(int minimumCalls) {
+    if (minimumCalls <= 0) {
+      throw new IllegalArgumentException("Invalid minimum calls, it must be > 0");
+    }
+    this.minimumCalls = minimumCalls;
+    return this;
+  }
+
+  /**
+   * @return the percentage of failures opening the breaker.
+   */
+  public int getFailureRateThreshold() {
+    return failureRateThreshold;
+  }
+
+  /**
+   * Sets the percentage of failures (including timeouts) opening the breaker.
+   *
+   * @param failureRateThreshold the percentage, between 1 and 100
+   * @return the current {@link CircuitBreakerOptions}
+   */
+  public CircuitBreakerOptions setFailureRateThreshold(int failureRateThreshold) {
+    this.failureRateThreshold = checkPercentage(failureRateThreshold);
+    return this;
+  }
+
+  /**
+   * @return the duration in milliseconds above which a message is considered slow, negative if disabled.
+   */
+  public long getSlowCallDuration() {
+    return slowCallDuration;
+  }
+
+  /**
+   * Sets the duration in milliseconds above which a message is considered slow. Disabled by default.
+   *
+   * @param slowCallDuration the duration, negative to disable the slow call detection
+   * @return the current {@link CircuitBreakerOptions}
+   */
+  public CircuitBreakerOptions setSlowCallDuration(long slowCallDuration) {
+    this.slowCallDuration = slowCallDuration;
+    return this;
+  }
+
+  /**
+   * @return the percentage of slow messages opening the breaker.
+   */
+  public int getSlowCallRateThreshold() {
+    return slowCallRateThreshold;
+  }
+
+  /**
+   * Sets the percentage of slow messages opening the breaker.
+   *
+   * @param slowCallRateThreshold the percentage, between 1 and 100
+   * @return the current {@link CircuitBreakerOptions}
+   */
+  public CircuitBreakerOptions setSlowCallRateThreshold(int slowCallRateThreshold) {
+    this.slowCallRateThreshold = checkPercentage(slowCallRateThreshold);
+    return this;
+  }
+
+  /**
+   * @return the time in milliseconds the breaker stays open.
+   */
+  public long getOpenDuration() {
+    return openDuration;
+  }
+
+  /**
+   * Sets the time in milliseconds the breaker stays open before letting probe messages through.
+   *
+   * @param openDuration the duration, must be strictly positive
+   * @return the current {@link CircuitBreakerOptions}
+   */
+  public CircuitBreakerOptions setOpenDuration(long openDuration) {
+    if (openDuration <= 0) {
+      throw new IllegalArgumentException("Invalid open duration, it must be > 0");
+    }
+    this.openDuration = openDuration;
+    return this;
+  }
+
+  /**
+   * @return the number of messages let through when the breaker is half-open.
+   */
+  public int getHalfOpenProbes() {
+    return halfOpenProbes;
+  }
+
+  /**
+   * Sets the number of messages let through when the breaker is half-open. The breaker closes if they all succeed.
+   *
+   * @param halfOpenProbes the number of messages, must be strictly positive
+   * @return the current {@link CircuitBreakerOptions}
+   */
+  public CircuitBreakerOptions setHalfOpenProbes(int halfOpenProbes) {
+    if (halfOpenProbes <= 0) {
+      throw new IllegalArgumentException("Invalid number of probes, it must be > 0");
+    }
+    this.halfOpenProbes = halfOpenProbes;
+    return this;
+  }
+
+  private static int checkPercentage(int percentage) {
+    if (percentage <= 0 || percentage > 100) {
+      throw new IllegalArgumentException("Invalid percentage, it must be in [1, 100]");
+    }
+    return percentage;
+  }
+}
@@ -17,6 +17,8 @@ package io.vertx.camel;
 
 import org.apache.camel.Endpoint;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -31,12 +33,41 @@ public class InboundMapping extends CamelMapping {
    */
   public static final boolean DEFAULT_PUBLISH = false;
 
+  /**
+   * The name of the codec handing the message body to the local consumers without copy.
+   *
+   * @see #withPassThroughCodec()
+   */
+  public static final String PASS_THROUGH_CODEC = "camel-bridge-pass-through";
+
+  /**
+   * The default size of the chunks of a streamed body, in bytes.
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+  /**
+   * The default maximum number of exchanges delayed by the rate limit.
+   */
+  public static final int DEFAULT_MAX_DELAYED = 1000;
+
   private boolean publish = DEFAULT_PUBLISH;
 
   private Class bodyType;
 
   private int timeout;
 
+  private String codecName;
+
+  private boolean localOnly;
+
+  private String routingHeader;
+  private Map<String, String> routes = new LinkedHashMap<>();
+
+  private boolean streaming;
+  private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+  private int maxDelayed = DEFAULT_MAX_DELAYED;
+
   /**
    * Creates an {@link InboundMapping} from the given Camel endpoint.
    *
@@ -120,6 +151,24 @@ public class InboundMapping extends CamelMapping {
     return this;
   }
 
+  @Override
+  public InboundMapping setLightweight(boolean lightweight) {
+    super.setLightweight(lightweight);
+    return this;
+  }
+
+  @Override
+  public InboundMapping setRateLimit(double permitsPerSecond, int burst) {
+    super.setRateLimit(permitsPerSecond, burst);
+    return this;
+  }
+
+  @Override
+  public InboundMapping setTypedHeaders(boolean typedHeaders) {
+    super.setTypedHeaders(typedHeaders);
+    return this;
+  }
+
   @Override
   public InboundMapping setUri(String uri) {
     super.setUri(uri);
@@ -160,4 +209,174 @@ public class InboundMapping extends CamelMapping {
   public int getTimeout() {
     return timeout;
   }
+
+  /**
+   * @return the name of the codec used to send the messages on the event bus, {@code null} to use the default codec
+   * of the body type.
+   */
+  public String getCodecName() {
+    return codecName;
+  }
+
+  /**
+   * Sets the name of the codec used to send the messages on the event bus. The codec must be registered on the event
+   * bus. If not set, the default codec of the body type is used.
+   *
+   * @param codecName the codec name
+   * @return the current {@link InboundMapping}
+   */
+  public InboundMapping setCodecName(String codecName) {
+    this.codecName = codecName;
+    return this;
+  }
+
+  /**
+   * @return whether or not the messages are only delivered to the consumers of the local Vert.x instance.
+   */
+  public boolean isLocalOnly() {
+    return localOnly;
+  }
+
+  /**
+   * Sets whether or not the messages are only delivered to the consumers of the local Vert.x instance, even if the
+   * event bus is clustered. {@code false} by default.
+   *
+   * @param localOnly {@code true} to deliver the messages locally only
+   * @return the current {@link InboundMapping}
+   */
+  public InboundMapping setLocalOnly(boolean localOnly) {
+    this.localOnly = localOnly;
+    return this;
+  }
+
+  /**
+   * Configures the mapping to hand the message body to the local consumers without any copy or serialization, using
+   * the {@link #PASS_THROUGH_CODEC} codec registered by the bridge. The delivery is local only.
+   * <p>
+   * The consumers receive the same object instance as the one carried by the Camel exchange. So, the body must be
+   * immutable, or the Camel route must not modify it once it has been sent, and the consumers must not modify it if
+   * they may receive it concurrently (when {@link #usePublish()} is used, or when the Camel route keeps using the body).
+   *
+   * @return the current {@link InboundMapping}
+   */
+  public InboundMapping withPassThroughCodec() {
+    return setCodecName(PASS_THROUGH_CODEC).setLocalOnly(true);
+  }
+
+  /**
+   * @return the name of the Camel header selecting the event bus address, {@code null} if the messages are always
+   * sent to the mapping address.
+   */
+  public String getRoutingHeader() {
+    return routingHeader;
+  }
+
+  /**
+   * Sets the name of the Camel header selecting the event bus address of each message, using the
+   * {@linkplain #addRoute(String, String) routes}. The messages without the header, or with a value without route,
+   * are sent to the mapping address (see {@link #setAddress(String)}).
+   *
+   * @param routingHeader the header name
+   * @return the current {@link InboundMapping}
+   */
+  public InboundMapping setRoutingHeader(String routingHeader) {
+    this.routingHeader = routingHeader;
+    return this;
+  }
+
+  /**
+   * @return the event bus addresses indexed by the value of the routing header.
+   */
+  public Map<String, String> getRoutes() {
+    return routes;
+  }
+
+  /**
+   * Sends the messages whose {@linkplain #setRoutingHeader(String) routing header} has the given value to the given
+   * address. The routes are compiled into a hash table when the bridge is created, so they must be added before.
+   *
+   * @param value   the value of the header, compared to its textual form
+   * @param address the event bus address, must not be {@code null}
+   * @return the current {@link InboundMapping}
+   */
+  public InboundMapping addRoute(String value, String address) {
+    Objects.requireNonNull(value);
+    Objects.requireNonNull(address);
+    routes.put(value, address);
+    return this;
+  }
+
+  /**
+   * @return whether or not the bodies are streamed as a sequence of chunks.
+   */
+  public boolean isStreaming() {
+    return streaming;
+  }
+
+  /**
+   * Sets whether or not the bodies are streamed. When enabled, the body is read as an {@code InputStream} (files,
+   * stream caches, byte arrays...) on a worker thread, and sent as a sequence of {@link io.vertx.core.buffer.Buffer}
+   * chunks of {@link #getChunkSize()} bytes, so large bodies are never fully loaded in memory. The chunks carry the
+   * {@link #STREAM_ID_HEADER}, {@link #STREAM_SEQUENCE_HEADER} and {@link #STREAM_END_HEADER} headers, and the Camel
+   * headers are copied on the first chunk only.
+   * <p>
+   * Each chunk is sent as a request, and the next one is only read once the consumer has replied to it, so the
+   * consumer controls the flow. The reply to the last chunk is the reply of the exchange. The exchange fails if a
+   * chunk is not acknowledged before the {@linkplain #setTimeout(int) timeout}. Streaming cannot be combined with
+   * {@link #usePublish()}, {@linkplain #setTypedHeaders(boolean) typed headers}, a
+   * {@linkplain #withBodyType(Class) body type}, or a
+   * {@linkplain CamelBridgeOptions#setMaxExchangeLifetime(long) maximum exchange lifetime}. {@code false} by default.
+   *
+   * @param streaming {@code true} to stream the bodies
+   * @return the current {@link InboundMapping}
+   */
+  public InboundMapping setStreaming(boolean streaming) {
+    this.streaming = streaming;
+    return this;
+  }
+
+  /**
+   * @return the size of the chunks of a streamed body, in bytes.
+   */
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Sets the size of the chunks of a streamed body. Defaults to {@link #DEFAULT_CHUNK_SIZE}.
+   *
+   * @param chunkSize the size in bytes, must be strictly positive
+   * @return the current {@link InboundMapping}
+   */
+  public InboundMapping setChunkSize(int chunkSize) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("Invalid chunk size, it must be > 0");
+    }
+    this.chunkSize = chunkSize;
+    return this;
+  }
+
+  /**
+   * @return the maximum number of exchanges delayed by the rate limit.
+   */
+  public int getMaxDelayed() {
+    return maxDelayed;
+  }
+
+  /**
+   * Sets the maximum number of exchanges waiting for the {@linkplain #setRateLimit(double, int) rate limit}. Once
+   * this number is reached, the exchanges fail immediately with a
+   * {@link java.util.concurrent.RejectedExecutionException}, so a fast Camel consumer cannot pile up an unbounded
+   * backlog of delayed exchanges. Defaults to {@link #DEFAULT_MAX_DELAYED}.
+   *
+   * @param maxDelayed the maximum number of delayed exchanges, must be positive or zero
+   * @return the current {@link InboundMapping}
+   */
+  public InboundMapping setMaxDelayed(int maxDelayed) {
+    if (maxDelayed < 0) {
+      throw new IllegalArgumentException("Invalid delayed value, it must be >= 0");
+    }
+    this.maxDelayed = maxDelayed;
+    return this;
+  }
 }
@@ -0,0 +1,45 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel;
+
+/**
+ * The strategies distributing the messages of an outbound mapping over several Camel endpoints.
+ *
+ * @see OutboundMapping#setLoadBalancing(LoadBalancing)
+ */
+public enum LoadBalancing {
+
+  /**
+   * The endpoints are used in turn.
+   */
+  ROUND_ROBIN,
+
+  /**
+   * The endpoints are used in turn, proportionally to their weight.
+   */
+  WEIGHTED,
+
+  /**
+   * The endpoint with the fewest messages in progress is used.
+   */
+  LEAST_IN_FLIGHT,
+
+  /**
+   * The first healthy endpoint, in declaration order, is used. The next ones are only used when the previous ones
+   * are unhealthy, or to retry a message that has failed on the previous ones.
+   */
+  FAILOVER
+}
@@ -18,6 +18,11 @@ package io.vertx.camel;
 import io.vertx.core.WorkerExecutor;
 import org.apache.camel.Endpoint;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -27,8 +32,95 @@ import java.util.Objects;
  */
 public class OutboundMapping extends CamelMapping {
 
+  /**
+   * The failure code of the replies sent when a message is rejected because the concurrency limit is reached.
+   */
+  public static final int REJECTED_FAILURE_CODE = 429;
+
+  /**
+   * The failure code of the replies sent when a message is rejected because the circuit breaker is open.
+   */
+  public static final int CIRCUIT_OPEN_FAILURE_CODE = 503;
+
+  /**
+   * The failure code of the replies sent when a message is rejected because its identifier has already been seen.
+   */
+  public static final int DUPLICATE_FAILURE_CODE = 409;
+
+  /**
+   * The default maximum number of producers kept by a mapping using a URI template.
+   */
+  public static final int DEFAULT_ENDPOINT_CACHE_SIZE = 100;
+
+  /**
+   * The default aging of the pending messages, in milliseconds: a message waits at most this time more than a
+   * message with a priority higher by 1.
+   */
+  public static final long DEFAULT_PRIORITY_AGING = 1000;
+
+  /**
+   * The default lowest priority read from the priority header.
+   */
+  public static final int DEFAULT_MIN_PRIORITY = 0;
+
+  /**
+   * The default highest priority read from the priority header.
+   */
+  public static final int DEFAULT_MAX_PRIORITY = 9;
+
+  /**
+   * The default maximum number of messages delayed by the rate limit.
+   */
+  public static final int DEFAULT_MAX_DELAYED = 1000;
+
+  /**
+   * The default number of consecutive failures making an endpoint unhealthy, when the messages are load balanced.
+   */
+  public static final int DEFAULT_UNHEALTHY_THRESHOLD = 3;
+
+  /**
+   * The default time during which an unhealthy endpoint is skipped, in milliseconds.
+   */
+  public static final long DEFAULT_UNHEALTHY_COOL_DOWN = 5000;
+
+  /**
+   * The event bus header naming a file to stream to the Camel endpoint, on {@linkplain #setStreaming(boolean)
+   * streaming} mappings. The file must be in the {@linkplain #setStreamFileDirectory(String) stream file directory}.
+   */
+  public static final String STREAM_FILE_HEADER = "vertx-camel-stream-file";
+
   private boolean blocking = false;
   private WorkerExecutor worker;
+  private Class bodyType;
+  private boolean pooledExchanges = false;
+  private int timeout = -1;
+  private int maxConcurrency = -1;
+  private boolean adaptiveConcurrency = false;
+  private int maxPending = 0;
+  private int maxDelayed = DEFAULT_MAX_DELAYED;
+  private CircuitBreakerOptions circuitBreaker;
+  private int replyCacheSize = -1;
+  private long replyCacheTtl = -1;
+  private List<String> requestKeyHeaders = Collections.emptyList();
+  private boolean coalescing = false;
+  private String deduplicationHeader;
+  private long deduplicationWindow = -1;
+  private String uriTemplate;
+  private int endpointCacheSize = DEFAULT_ENDPOINT_CACHE_SIZE;
+  private String addressPrefix;
+  private List<String> uris = new ArrayList<>();
+  private List<Integer> weights = new ArrayList<>();
+  private LoadBalancing loadBalancing = LoadBalancing.ROUND_ROBIN;
+  private int unhealthyThreshold = DEFAULT_UNHEALTHY_THRESHOLD;
+  private long unhealthyCoolDown = DEFAULT_UNHEALTHY_COOL_DOWN;
+  private String priorityHeader;
+  private Map<String, Integer> priorityAddresses = new LinkedHashMap<>();
+  private long priorityAging = DEFAULT_PRIORITY_AGING;
+  private int minPriority = DEFAULT_MIN_PRIORITY;
+  private int maxPriority = DEFAULT_MAX_PRIORITY;
+  private SpoolOptions spool;
+  private boolean streaming;
+  private String streamFileDirectory;
 
   /**
    * Creates an {@link OutboundMapping} from the given Vert.x address.
@@ -41,6 +133,18 @@ public class OutboundMapping extends CamelMapping {
     return new OutboundMapping().setAddress(address);
   }
 
+  /**
+   * Creates an {@link OutboundMapping} receiving the messages sent to all the addresses starting with the given
+   * prefix.
+   *
+   * @param prefix the address prefix - must not be {@code null}
+   * @return the created {@link OutboundMapping}
+   * @see #setAddressPrefix(String)
+   */
+  public static OutboundMapping fromVertxPrefix(String prefix) {
+    return new OutboundMapping().setAddressPrefix(prefix);
+  }
+
   @Override
   public OutboundMapping setAddress(String address) {
     super.setAddress(address);
@@ -53,6 +157,24 @@ public class OutboundMapping extends CamelMapping {
     return this;
   }
 
+  @Override
+  public OutboundMapping setLightweight(boolean lightweight) {
+    super.setLightweight(lightweight);
+    return this;
+  }
+
+  @Override
+  public OutboundMapping setRateLimit(double permitsPerSecond, int burst) {
+    super.setRateLimit(permitsPerSecond, burst);
+    return this;
+  }
+
+  @Override
+  public OutboundMapping setTypedHeaders(boolean typedHeaders) {
+    super.setTypedHeaders(typedHeaders);
+    return this;
+  }
+
   @Override
   public OutboundMapping setUri(String uri) {
     super.setUri(uri);
@@ -133,4 +255,657 @@ public class OutboundMapping extends CamelMapping {
     this.worker = pool;
     return this;
   }
+
+  /**
+   * @return the type of the body of the Camel message created from the event bus message. A Camel converter from the
+   * event bus message payload to the given type is used for conversion. If not set, no conversions are applied.
+   */
+  public Class getBodyType() {
+    return bodyType;
+  }
+
+  /**
+   * Sets the type of the body of the Camel message created from the event bus message. A Camel converter from the
+   * event bus message payload to the given type is used for conversion. If not set, no conversions are applied.
+   * <p>
+   * The conversion is applied once, before the message is sent to the Camel endpoint. If the mapping is blocking, it
+   * runs on the worker thread.
+   *
+   * @param bodyType the body type.
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping withBodyType(Class bodyType) {
+    this.bodyType = bodyType;
+    return this;
+  }
+
+  /**
+   * @return whether or not the Camel exchanges are taken from a pool and reused.
+   */
+  public boolean isPooledExchanges() {
+    return pooledExchanges;
+  }
+
+  /**
+   * Sets whether or not the Camel exchanges created for the event bus messages are taken from a pool, and returned to
+   * the pool once the reply has been sent. {@code false} by default.
+   * <p>
+   * The exchanges are created by a copy of the exchange factory of the Camel context, so they are only pooled when the
+   * context uses a pooled exchange factory ({@code camel.main.exchange-factory = pooled}, or
+   * {@link org.apache.camel.impl.engine.PooledExchangeFactory} set on the context). The exchanges are reset when
+   * returned to the pool, so the Camel endpoint must not keep a reference on them once it has completed the
+   * processing.
+   *
+   * @param pooledExchanges {@code true} to enable the pooling
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setPooledExchanges(boolean pooledExchanges) {
+    this.pooledExchanges = pooledExchanges;
+    return this;
+  }
+
+  /**
+   * @return the timeout in milliseconds, {@code -1} if not set.
+   */
+  public int getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * Sets the maximum time in milliseconds given to the Camel endpoint to process an event bus message. When the
+   * timeout is reached, the sender receives a failure with the {@link io.vertx.core.eventbus.ReplyFailure#TIMEOUT}
+   * type, and a late reply from the endpoint is discarded. The exchange itself is left untouched, as the endpoint may
+   * still be processing it. If the mapping is blocking, the worker thread running the processing is interrupted.
+   *
+   * @param timeout the time out, must be strictly positive
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setTimeout(int timeout) {
+    if (timeout <= 0) {
+      throw new IllegalArgumentException("Invalid timeout value, it must be > 0");
+    }
+    this.timeout = timeout;
+    return this;
+  }
+
+  /**
+   * @return the maximum number of messages processed concurrently, {@code -1} if unbounded.
+   */
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  /**
+   * Sets the maximum number of messages processed concurrently by the Camel endpoint. When the limit is reached, the
+   * messages are queued (see {@link #setMaxPending(int)}) or rejected with a failure using the
+   * {@link #REJECTED_FAILURE_CODE} code. If the concurrency is adaptive, it is the upper bound of the limit. Unbounded
+   * by default.
+   *
+   * @param maxConcurrency the limit, must be strictly positive
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setMaxConcurrency(int maxConcurrency) {
+    if (maxConcurrency <= 0) {
+      throw new IllegalArgumentException("Invalid concurrency value, it must be > 0");
+    }
+    this.maxConcurrency = maxConcurrency;
+    return this;
+  }
+
+  /**
+   * @return whether or not the concurrency limit is adapted to the observed latency.
+   */
+  public boolean isAdaptiveConcurrency() {
+    return adaptiveConcurrency;
+  }
+
+  /**
+   * Sets whether or not the concurrency limit is adapted to the latency of the Camel endpoint. The limit grows while
+   * the latency stays close to the lowest observed latency, and shrinks when the latency increases, or when messages
+   * fail or time out. If no maximum concurrency is set, the limit is bounded to 1000. {@code false} by default.
+   *
+   * @param adaptiveConcurrency {@code true} to adapt the limit
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setAdaptiveConcurrency(boolean adaptiveConcurrency) {
+    this.adaptiveConcurrency = adaptiveConcurrency;
+    return this;
+  }
+
+  /**
+   * @return the maximum number of messages waiting for the concurrency limit.
+   */
+  public int getMaxPending() {
+    return maxPending;
+  }
+
+  /**
+   * Sets the maximum number of messages waiting when the concurrency limit is reached. Once the queue is full, the
+   * messages are rejected. {@code 0} by default: the messages are rejected immediately.
+   *
+   * @param maxPending the size of the queue, must be positive or zero
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setMaxPending(int maxPending) {
+    if (maxPending < 0) {
+      throw new IllegalArgumentException("Invalid pending value, it must be >= 0");
+    }
+    this.maxPending = maxPending;
+    return this;
+  }
+
+  /**
+   * @return the maximum number of messages delayed by the rate limit.
+   */
+  public int getMaxDelayed() {
+    return maxDelayed;
+  }
+
+  /**
+   * Sets the maximum number of messages waiting for the {@linkplain #setRateLimit(double, int) rate limit}. Once the
+   * queue is full, the messages are rejected with a failure using the {@link #REJECTED_FAILURE_CODE} code, and counted
+   * in the {@code rateRejected} metric. Defaults to {@link #DEFAULT_MAX_DELAYED}.
+   *
+   * @param maxDelayed the size of the queue, must be positive or zero
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setMaxDelayed(int maxDelayed) {
+    if (maxDelayed < 0) {
+      throw new IllegalArgumentException("Invalid delayed value, it must be >= 0");
+    }
+    this.maxDelayed = maxDelayed;
+    return this;
+  }
+
+  /**
+   * @return the circuit breaker configuration, {@code null} if the mapping has no circuit breaker.
+   */
+  public CircuitBreakerOptions getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  /**
+   * Protects the Camel endpoint with a circuit breaker. When the endpoint fails or is too slow, the breaker opens,
+   * and the messages fail immediately with the {@link #CIRCUIT_OPEN_FAILURE_CODE} code, without creating an exchange.
+   * No circuit breaker is used by default.
+   *
+   * @param circuitBreaker the circuit breaker configuration, {@code null} to disable it
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setCircuitBreaker(CircuitBreakerOptions circuitBreaker) {
+    this.circuitBreaker = circuitBreaker;
+    return this;
+  }
+
+  /**
+   * @return the maximum number of replies kept in the reply cache, {@code -1} if the cache is disabled.
+   */
+  public int getReplyCacheSize() {
+    return replyCacheSize;
+  }
+
+  /**
+   * @return the time to live in milliseconds of the replies kept in the reply cache.
+   */
+  public long getReplyCacheTtl() {
+    return replyCacheTtl;
+  }
+
+  /**
+   * Enables the reply cache. The successful replies of the Camel endpoint are kept for the given time, and the
+   * equivalent requests (same body and same values for the {@linkplain #setRequestKeyHeaders(List) key headers}) are
+   * answered from the cache, without creating an exchange. When full, the least recently used reply is evicted.
+   * <p>
+   * The cache must only be used for endpoints whose replies depend on the request only, such as reference data
+   * lookups. It applies to the messages expecting a reply.
+   *
+   * @param maxSize the maximum number of replies, must be strictly positive
+   * @param ttl     the time to live in milliseconds, must be strictly positive
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setReplyCache(int maxSize, long ttl) {
+    if (maxSize <= 0 || ttl <= 0) {
+      throw new IllegalArgumentException("Invalid reply cache, the size and the time to live must be > 0");
+    }
+    this.replyCacheSize = maxSize;
+    this.replyCacheTtl = ttl;
+    return this;
+  }
+
+  /**
+   * @return the names of the headers identifying a request, in addition to the body.
+   */
+  public List<String> getRequestKeyHeaders() {
+    return requestKeyHeaders;
+  }
+
+  /**
+   * Sets the names of the headers identifying a request, in addition to the body. Requests with the same body but
+   * different values for these headers are considered different. Empty by default.
+   *
+   * @param requestKeyHeaders the header names, must not be {@code null}
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setRequestKeyHeaders(List<String> requestKeyHeaders) {
+    Objects.requireNonNull(requestKeyHeaders);
+    this.requestKeyHeaders = requestKeyHeaders;
+    return this;
+  }
+
+  /**
+   * @return whether or not the equivalent requests in flight are coalesced.
+   */
+  public boolean isCoalescing() {
+    return coalescing;
+  }
+
+  /**
+   * Sets whether or not the equivalent requests (same body and same values for the
+   * {@linkplain #setRequestKeyHeaders(List) key headers}) are coalesced. When enabled, a single exchange is sent to
+   * the Camel endpoint while an equivalent request is in flight, and its reply (or failure) is sent to all the
+   * waiting requests. It applies to the messages expecting a reply. {@code false} by default.
+   *
+   * @param coalescing {@code true} to coalesce the requests
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setCoalescing(boolean coalescing) {
+    this.coalescing = coalescing;
+    return this;
+  }
+
+  /**
+   * @return the name of the header carrying the message identifier used to detect duplicates, {@code null} if the
+   * deduplication is disabled.
+   */
+  public String getDeduplicationHeader() {
+    return deduplicationHeader;
+  }
+
+  /**
+   * @return the time in milliseconds during which the message identifiers are remembered.
+   */
+  public long getDeduplicationWindow() {
+    return deduplicationWindow;
+  }
+
+  /**
+   * Enables the detection of duplicated messages, such as messages retried by the sender after a timeout. The
+   * identifier of the message is read from the given header, and remembered for at least the given window (and at
+   * most twice the window). A message whose identifier has already been seen is not sent to the Camel endpoint: if
+   * it expects a reply, it fails with the {@link #DUPLICATE_FAILURE_CODE} code, otherwise it is dropped. Messages
+   * without the header are always sent.
+   * <p>
+   * The identifiers are recorded when the messages are received, and forgotten when the message fails (rejected by the
+   * bridge, failed by the endpoint or timed out, unless it is spooled), so the sender can retry it. A retry of a message
+   * still in progress, or that succeeded, is a duplicate.
+   *
+   * @param header the name of the header, must not be {@code null}
+   * @param window the window in milliseconds, must be strictly positive
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setDeduplication(String header, long window) {
+    Objects.requireNonNull(header);
+    if (window <= 0) {
+      throw new IllegalArgumentException("Invalid deduplication window, it must be > 0");
+    }
+    this.deduplicationHeader = header;
+    this.deduplicationWindow = window;
+    return this;
+  }
+
+  /**
+   * @return the template of the Camel endpoint URI, {@code null} if the mapping uses a fixed URI.
+   */
+  public String getUriTemplate() {
+    return uriTemplate;
+  }
+
+  /**
+   * Sets the template of the Camel endpoint URI, used instead of a fixed URI to pick the endpoint per message. The
+   * {@code {name}} placeholders are replaced by the values of the corresponding headers of the event bus message
+   * (such as {@code jms:queue:orders-{tenant}}). A message without one of these headers, or with a value containing a
+   * URI delimiter ({@code ?&=:/#}) or a brace, fails. Camel property placeholders ({@code {{name}}}) are left to Camel.
+   * <p>
+   * The endpoints and their started producers are kept in a cache (see {@link #setEndpointCacheSize(int)}).
+   *
+   * @param uriTemplate the template, must not be {@code null}
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setUriTemplate(String uriTemplate) {
+    Objects.requireNonNull(uriTemplate);
+    this.uriTemplate = uriTemplate;
+    return this;
+  }
+
+  /**
+   * @return the maximum number of producers kept by a mapping using a URI template.
+   */
+  public int getEndpointCacheSize() {
+    return endpointCacheSize;
+  }
+
+  /**
+   * Sets the maximum number of producers kept by a mapping using a URI template. When full, the producer of the
+   * least recently used endpoint is stopped (once its exchanges in progress have completed). Defaults to
+   * {@link #DEFAULT_ENDPOINT_CACHE_SIZE}.
+   *
+   * @param endpointCacheSize the size, must be strictly positive
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setEndpointCacheSize(int endpointCacheSize) {
+    if (endpointCacheSize <= 0) {
+      throw new IllegalArgumentException("Invalid endpoint cache size, it must be > 0");
+    }
+    this.endpointCacheSize = endpointCacheSize;
+    return this;
+  }
+
+  /**
+   * @return the address prefix, {@code null} if the mapping receives the messages of a single address.
+   */
+  public String getAddressPrefix() {
+    return addressPrefix;
+  }
+
+  /**
+   * Sets the address prefix, used instead of an address to map a family of addresses with a single mapping. The
+   * messages sent to an address starting with the prefix are transferred to the Camel endpoint. If several prefixes
+   * match an address, the longest one is used. Combined with a {@linkplain #setUriTemplate(String) URI template}, the
+   * {@code {suffix}} placeholder is replaced by the part of the address following the prefix (for instance,
+   * {@code orders.} and {@code jms:queue:{suffix}}).
+   * <p>
+   * The messages are intercepted when they are sent, so only the messages sent from the local Vert.x instance are
+   * transferred, and they are not delivered to the event bus consumers registered on the matching addresses.
+   *
+   * @param addressPrefix the prefix, must not be {@code null} or empty
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setAddressPrefix(String addressPrefix) {
+    Objects.requireNonNull(addressPrefix);
+    if (addressPrefix.isEmpty()) {
+      throw new IllegalArgumentException("The address prefix must not be empty");
+    }
+    this.addressPrefix = addressPrefix;
+    return this;
+  }
+
+  /**
+   * @return the URIs of the Camel endpoints the messages are distributed over, empty if the mapping uses a single
+   * URI.
+   */
+  public List<String> getUris() {
+    return uris;
+  }
+
+  /**
+   * @return the weights of the Camel endpoints the messages are distributed over.
+   */
+  public List<Integer> getWeights() {
+    return weights;
+  }
+
+  /**
+   * Adds a Camel endpoint the messages are distributed over, with a weight of 1. When URIs are added, they are used
+   * instead of {@link #setUri(String)}, and the endpoint of each message is selected by the
+   * {@linkplain #setLoadBalancing(LoadBalancing) load balancing strategy}.
+   *
+   * @param uri the uri, must not be {@code null}
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping addUri(String uri) {
+    return addUri(uri, 1);
+  }
+
+  /**
+   * Adds a Camel endpoint the messages are distributed over, with the given weight. The weight is only used by the
+   * {@link LoadBalancing#WEIGHTED} strategy.
+   *
+   * @param uri    the uri, must not be {@code null}
+   * @param weight the weight, must be strictly positive
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping addUri(String uri, int weight) {
+    Objects.requireNonNull(uri);
+    if (weight <= 0) {
+      throw new IllegalArgumentException("Invalid weight, it must be > 0");
+    }
+    uris.add(uri);
+    weights.add(weight);
+    return this;
+  }
+
+  /**
+   * @return the strategy distributing the messages over the URIs.
+   */
+  public LoadBalancing getLoadBalancing() {
+    return loadBalancing;
+  }
+
+  /**
+   * Sets the strategy distributing the messages over the {@linkplain #addUri(String, int) URIs}. Defaults to
+   * {@link LoadBalancing#ROUND_ROBIN}.
+   * <p>
+   * Whatever the strategy, an endpoint failing consecutive times is considered unhealthy, and is not used for a while
+   * (unless all the endpoints are unhealthy), see {@link #setUnhealthyThreshold(int, long)}. With
+   * {@link LoadBalancing#FAILOVER}, the messages are sent to the first healthy endpoint, and a failed message is
+   * retried on the next healthy endpoints.
+   *
+   * @param loadBalancing the strategy, must not be {@code null}
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setLoadBalancing(LoadBalancing loadBalancing) {
+    Objects.requireNonNull(loadBalancing);
+    this.loadBalancing = loadBalancing;
+    return this;
+  }
+
+  /**
+   * @return the number of consecutive failures making an endpoint unhealthy.
+   */
+  public int getUnhealthyThreshold() {
+    return unhealthyThreshold;
+  }
+
+  /**
+   * @return the time during which an unhealthy endpoint is skipped, in milliseconds.
+   */
+  public long getUnhealthyCoolDown() {
+    return unhealthyCoolDown;
+  }
+
+  /**
+   * Sets when a load balanced endpoint is considered unhealthy: after the given number of consecutive failures, the
+   * endpoint is skipped during the cool-down period, then used again. Defaults to
+   * {@link #DEFAULT_UNHEALTHY_THRESHOLD} failures and {@link #DEFAULT_UNHEALTHY_COOL_DOWN} milliseconds.
+   *
+   * @param failures the number of consecutive failures, must be strictly positive
+   * @param coolDown the time during which the endpoint is skipped, in milliseconds, must be positive or zero
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setUnhealthyThreshold(int failures, long coolDown) {
+    if (failures <= 0 || coolDown < 0) {
+      throw new IllegalArgumentException("Invalid unhealthy threshold, the failures must be > 0 and the cool-down >= 0");
+    }
+    this.unhealthyThreshold = failures;
+    this.unhealthyCoolDown = coolDown;
+    return this;
+  }
+
+  /**
+   * @return the header containing the priority of the messages, {@code null} if not set.
+   */
+  public String getPriorityHeader() {
+    return priorityHeader;
+  }
+
+  /**
+   * Sets the header containing the priority of the messages. The value is an integer, the messages with the highest
+   * priority leave the {@linkplain #setMaxPending(int) pending queue} first. Messages without the header, or with an
+   * invalid value, have the priority {@code 0}. The values are set by the senders, so they are clamped to the
+   * {@linkplain #setPriorityRange(int, int) priority range}.
+   * <p>
+   * The priorities only apply to the messages waiting for the {@linkplain #setMaxConcurrency(int) concurrency limit}.
+   * For a blocking mapping, set the limit to the size of the worker pool, so the queue is in front of the blocking
+   * execution. When the queue is full, a message evicts the pending message with the lowest priority, if any.
+   *
+   * @param priorityHeader the header name
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setPriorityHeader(String priorityHeader) {
+    this.priorityHeader = priorityHeader;
+    return this;
+  }
+
+  /**
+   * @return the lowest priority read from the priority header.
+   */
+  public int getMinPriority() {
+    return minPriority;
+  }
+
+  /**
+   * @return the highest priority read from the priority header.
+   */
+  public int getMaxPriority() {
+    return maxPriority;
+  }
+
+  /**
+   * Sets the range of the priorities read from the {@linkplain #setPriorityHeader(String) priority header}. The values
+   * outside of the range are replaced by its closest bound, so a sender cannot overtake the
+   * {@linkplain #addPriorityAddress(String, int) priority addresses} with an arbitrary high value. Defaults to
+   * {@link #DEFAULT_MIN_PRIORITY} - {@link #DEFAULT_MAX_PRIORITY}.
+   *
+   * @param minPriority the lowest priority
+   * @param maxPriority the highest priority, must be greater than or equal to {@code minPriority}
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setPriorityRange(int minPriority, int maxPriority) {
+    if (minPriority > maxPriority) {
+      throw new IllegalArgumentException("Invalid priority range, the minimum must be <= the maximum");
+    }
+    this.minPriority = minPriority;
+    this.maxPriority = maxPriority;
+    return this;
+  }
+
+  /**
+   * @return the additional event bus addresses feeding this mapping, with the priority of their messages.
+   */
+  public Map<String, Integer> getPriorityAddresses() {
+    return priorityAddresses;
+  }
+
+  /**
+   * Adds an event bus address feeding this mapping, whose messages have the given priority. It takes precedence over
+   * the {@linkplain #setPriorityHeader(String) priority header}. The messages received on the main address have the
+   * priority {@code 0}, unless the header is set.
+   *
+   * @param address  the address, must not be {@code null}
+   * @param priority the priority, higher values leave the pending queue first
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping addPriorityAddress(String address, int priority) {
+    Objects.requireNonNull(address);
+    priorityAddresses.put(address, priority);
+    return this;
+  }
+
+  /**
+   * @return the aging of the pending messages, in milliseconds.
+   */
+  public long getPriorityAging() {
+    return priorityAging;
+  }
+
+  /**
+   * Sets the aging of the pending messages, protecting the low priority messages from starvation: a pending message
+   * is dispatched before any message received more than {@code aging} milliseconds later with a priority higher by 1.
+   * Defaults to {@link #DEFAULT_PRIORITY_AGING}.
+   *
+   * @param priorityAging the aging in milliseconds, must be strictly positive
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setPriorityAging(long priorityAging) {
+    if (priorityAging <= 0) {
+      throw new IllegalArgumentException("Invalid aging, it must be > 0");
+    }
+    this.priorityAging = priorityAging;
+    return this;
+  }
+
+  /**
+   * @return the spool configuration, {@code null} if the mapping has no spool.
+   */
+  public SpoolOptions getSpool() {
+    return spool;
+  }
+
+  /**
+   * Spools the messages that cannot be delivered to the Camel endpoint in a local journal, replayed once the endpoint
+   * recovers. Only the messages that do not expect a reply are spooled, and their body must be supported by the
+   * {@link TypedMessage} codec. No spool is used by default.
+   *
+   * @param spool the spool configuration, {@code null} to disable it
+   * @return the current instance of {@link OutboundMapping}
+   * @see SpoolOptions
+   */
+  public OutboundMapping setSpool(SpoolOptions spool) {
+    this.spool = spool;
+    return this;
+  }
+
+  /**
+   * @return whether or not the mapping accepts streamed bodies.
+   */
+  public boolean isStreaming() {
+    return streaming;
+  }
+
+  /**
+   * Sets whether or not the mapping accepts streamed bodies, handed to the Camel endpoint as an
+   * {@code InputStream}, so the memory used by a transfer does not depend on its size. A body can be streamed:
+   * <ul>
+   * <li>as a sequence of {@link io.vertx.core.buffer.Buffer} chunks, carrying the {@link #STREAM_ID_HEADER},
+   * {@link #STREAM_SEQUENCE_HEADER} and {@link #STREAM_END_HEADER} headers (the format used by streaming inbound
+   * mappings). Each chunk must be sent as a request, and the next chunk only once the previous one has been
+   * acknowledged: the acknowledgement is sent when the Camel endpoint starts reading the chunk. The reply to the last
+   * chunk is the reply of the exchange.</li>
+   * <li>from a file, named by the {@link #STREAM_FILE_HEADER} header. The file is read asynchronously, and paused
+   * while the Camel endpoint does not read it. Only the files of the
+   * {@linkplain #setStreamFileDirectory(String) stream file directory} can be streamed.</li>
+   * </ul>
+   * The other messages are processed as usual. As the endpoint reads the stream, the mapping must be
+   * {@linkplain #setBlocking(boolean) blocking}; set a {@linkplain #setTimeout(int) timeout}, so an abandoned stream
+   * does not hold a worker thread. A stream whose sender sends no chunk during the timeout (or a minute, without
+   * timeout) is failed. Streaming cannot be combined with the reply cache, coalescing or the spool.
+   * {@code false} by default.
+   *
+   * @param streaming {@code true} to accept streamed bodies
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setStreaming(boolean streaming) {
+    this.streaming = streaming;
+    return this;
+  }
+
+  /**
+   * @return the directory containing the files that can be streamed, {@code null} if files cannot be streamed.
+   */
+  public String getStreamFileDirectory() {
+    return streamFileDirectory;
+  }
+
+  /**
+   * Sets the directory containing the files that can be streamed with the {@link #STREAM_FILE_HEADER} header. The
+   * names are resolved against this directory, and the files outside of it (including through symbolic links) are
+   * refused, so the senders cannot read arbitrary files. Files cannot be streamed unless this directory is set.
+   *
+   * @param streamFileDirectory the directory, {@code null} to refuse the files
+   * @return the current instance of {@link OutboundMapping}
+   */
+  public OutboundMapping setStreamFileDirectory(String streamFileDirectory) {
+    this.streamFileDirectory = streamFileDirectory;
+    return this;
+  }
 }
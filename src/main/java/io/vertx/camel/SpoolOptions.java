@@ -0,0 +1,169 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel;
+
+import java.util.Objects;
+
+/**
+ * Configures the spool of an {@link OutboundMapping}.
+ * <p>
+ * The messages that do not expect a reply, and that cannot be delivered because the Camel endpoint fails or the
+ * circuit breaker is open, are appended to a memory-mapped journal stored in {@link #getDirectory()}. While the
+ * journal is not empty, the new messages are appended to it too, so the order is kept. The journal is replayed in
+ * order, at most {@link #getReplayRate()} messages per second; when a replayed message fails, the replay is retried
+ * after {@link #getRetryDelay()}. A message failing {@link #getMaxReplayAttempts()} times in a row is removed from the
+ * journal, and sent to {@link #getDeadLetterAddress()} if set, so it does not block the following messages. Once the
+ * journal reaches {@link #getMaxSize()}, the messages fail as if the mapping had no spool.
+ */
+public class SpoolOptions {
+
+  public static final int DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
+  public static final double DEFAULT_REPLAY_RATE = 100;
+  public static final long DEFAULT_RETRY_DELAY = 1000;
+  public static final int DEFAULT_MAX_REPLAY_ATTEMPTS = 10;
+
+  private String directory;
+  private int maxSize = DEFAULT_MAX_SIZE;
+  private double replayRate = DEFAULT_REPLAY_RATE;
+  private long retryDelay = DEFAULT_RETRY_DELAY;
+  private int maxReplayAttempts = DEFAULT_MAX_REPLAY_ATTEMPTS;
+  private String deadLetterAddress;
+
+  /**
+   * @return the directory containing the journals.
+   */
+  public String getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Sets the directory containing the journals, one per mapping. It is created if it does not exist. A journal left
+   * by a previous run is replayed once the bridge is started.
+   *
+   * @param directory the directory, must not be {@code null}
+   * @return the current {@link SpoolOptions}
+   */
+  public SpoolOptions setDirectory(String directory) {
+    this.directory = Objects.requireNonNull(directory);
+    return this;
+  }
+
+  /**
+   * @return the size of the journal in bytes.
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Sets the size of the journal in bytes. The file is mapped in memory with this size.
+   *
+   * @param maxSize the size, must be greater than 1024
+   * @return the current {@link SpoolOptions}
+   */
+  public SpoolOptions setMaxSize(int maxSize) {
+    if (maxSize <= 1024) {
+      throw new IllegalArgumentException("Invalid spool size, it must be > 1024");
+    }
+    this.maxSize = maxSize;
+    return this;
+  }
+
+  /**
+   * @return the maximum number of messages replayed per second.
+   */
+  public double getReplayRate() {
+    return replayRate;
+  }
+
+  /**
+   * Sets the maximum number of messages replayed per second, so a recovering endpoint is not flooded.
+   *
+   * @param replayRate the rate, must be strictly positive
+   * @return the current {@link SpoolOptions}
+   */
+  public SpoolOptions setReplayRate(double replayRate) {
+    if (replayRate <= 0) {
+      throw new IllegalArgumentException("Invalid replay rate, it must be > 0");
+    }
+    this.replayRate = replayRate;
+    return this;
+  }
+
+  /**
+   * @return the delay in milliseconds before replaying a message again after a failure.
+   */
+  public long getRetryDelay() {
+    return retryDelay;
+  }
+
+  /**
+   * Sets the delay in milliseconds before replaying a message again after a failure, or while the circuit breaker is
+   * open.
+   *
+   * @param retryDelay the delay, must be strictly positive
+   * @return the current {@link SpoolOptions}
+   */
+  public SpoolOptions setRetryDelay(long retryDelay) {
+    if (retryDelay <= 0) {
+      throw new IllegalArgumentException("Invalid retry delay, it must be > 0");
+    }
+    this.retryDelay = retryDelay;
+    return this;
+  }
+
+  /**
+   * @return the maximum number of times a message is replayed before being dropped.
+   */
+  public int getMaxReplayAttempts() {
+    return maxReplayAttempts;
+  }
+
+  /**
+   * Sets the maximum number of times a message is replayed before being dropped. The attempts made while the circuit
+   * breaker is open do not count. Defaults to {@link #DEFAULT_MAX_REPLAY_ATTEMPTS}.
+   *
+   * @param maxReplayAttempts the number of attempts, must be strictly positive
+   * @return the current {@link SpoolOptions}
+   */
+  public SpoolOptions setMaxReplayAttempts(int maxReplayAttempts) {
+    if (maxReplayAttempts <= 0) {
+      throw new IllegalArgumentException("Invalid number of replay attempts, it must be > 0");
+    }
+    this.maxReplayAttempts = maxReplayAttempts;
+    return this;
+  }
+
+  /**
+   * @return the event bus address receiving the dropped messages, {@code null} if they are discarded.
+   */
+  public String getDeadLetterAddress() {
+    return deadLetterAddress;
+  }
+
+  /**
+   * Sets the event bus address receiving the messages dropped from the journal, because they failed too many times or
+   * their endpoint cannot be resolved anymore. They are sent as {@link TypedMessage}, with the spooled body and
+   * headers. The dropped messages are discarded by default.
+   *
+   * @param deadLetterAddress the address, {@code null} to discard the dropped messages
+   * @return the current {@link SpoolOptions}
+   */
+  public SpoolOptions setDeadLetterAddress(String deadLetterAddress) {
+    this.deadLetterAddress = deadLetterAddress;
+    return this;
+  }
+}
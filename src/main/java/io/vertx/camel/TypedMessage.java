@@ -0,0 +1,95 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An event bus payload carrying a body and typed headers.
+ * <p>
+ * Event bus message headers are strings. When a mapping is configured with
+ * {@link CamelMapping#setTypedHeaders(boolean)}, the Camel message headers are carried in this structure instead, so
+ * numbers, booleans, dates and byte arrays keep their type. The bridge registers a codec for this class, so it can be
+ * sent locally and over the clustered event bus.
+ * <p>
+ * On the outbound side, event bus messages whose body is a {@link TypedMessage} are unwrapped: the body and the headers
+ * are set on the Camel message.
+ */
+public class TypedMessage {
+
+  private final Object body;
+  private final Map<String, Object> headers;
+
+  /**
+   * Creates a new instance of {@link TypedMessage} without headers.
+   *
+   * @param body the body, may be {@code null}
+   */
+  public TypedMessage(Object body) {
+    this(body, new LinkedHashMap<>());
+  }
+
+  /**
+   * Creates a new instance of {@link TypedMessage}.
+   *
+   * @param body    the body, may be {@code null}
+   * @param headers the headers, must not be {@code null}
+   */
+  public TypedMessage(Object body, Map<String, Object> headers) {
+    Objects.requireNonNull(headers);
+    this.body = body;
+    this.headers = headers;
+  }
+
+  /**
+   * @return the body, may be {@code null}
+   */
+  public Object body() {
+    return body;
+  }
+
+  /**
+   * @return the headers, never {@code null}
+   */
+  public Map<String, Object> headers() {
+    return headers;
+  }
+
+  /**
+   * Gets the value of a header.
+   *
+   * @param name the header name
+   * @return the value, {@code null} if not set
+   */
+  public Object header(String name) {
+    return headers.get(name);
+  }
+
+  /**
+   * Sets a header.
+   *
+   * @param name  the header name, must not be {@code null}
+   * @param value the value
+   * @return the current {@link TypedMessage}
+   */
+  public TypedMessage putHeader(String name, Object value) {
+    Objects.requireNonNull(name);
+    headers.put(name, value);
+    return this;
+  }
+}
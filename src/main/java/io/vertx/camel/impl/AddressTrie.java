@@ -0,0 +1,83 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A prefix tree of event bus addresses, finding the longest registered prefix of an address.
+ * <p>
+ * The lookup walks the address once, and stops at the first character without a matching branch, so the addresses
+ * not matching any prefix are rejected after a few steps. The tree is not thread-safe while being built.
+ *
+ * @param <T> the type of the values associated with the prefixes
+ */
+class AddressTrie<T> {
+
+  private final Node<T> root = new Node<>();
+
+  /**
+   * Associates a value with a prefix.
+   *
+   * @param prefix the prefix, must not be empty
+   * @param value  the value
+   * @throws IllegalArgumentException if the prefix is already registered
+   */
+  void put(String prefix, T value) {
+    if (prefix.isEmpty()) {
+      throw new IllegalArgumentException("The address prefix must not be empty");
+    }
+    Node<T> node = root;
+    for (int i = 0; i < prefix.length(); i++) {
+      node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Node<>());
+    }
+    if (node.value != null) {
+      throw new IllegalArgumentException("The address prefix " + prefix + " is already mapped");
+    }
+    node.value = value;
+  }
+
+  /**
+   * Finds the value associated with the longest prefix of the given address.
+   *
+   * @param address the address
+   * @return the value, {@code null} if no prefix matches
+   */
+  T match(String address) {
+    Node<T> node = root;
+    T match = null;
+    for (int i = 0; i < address.length(); i++) {
+      node = node.children.get(address.charAt(i));
+      if (node == null) {
+        break;
+      }
+      if (node.value != null) {
+        match = node.value;
+      }
+    }
+    return match;
+  }
+
+  boolean isEmpty() {
+    return root.children.isEmpty();
+  }
+
+  private static final class Node<T> {
+    private final Map<Character, Node<T>> children = new HashMap<>(4);
+    private T value;
+  }
+}
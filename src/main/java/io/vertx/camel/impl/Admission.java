@@ -0,0 +1,312 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.camel.OutboundMapping;
+import io.vertx.camel.TypedMessage;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyFailure;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides when the messages of an outbound mapping are sent to the Camel endpoint. The circuit breaker, the rate limit
+ * and the concurrency limit are checked in this order: the messages delayed by the rate limit wait in a bounded queue,
+ * and the messages exceeding the concurrency limit wait in the pending queue, by priority. The admitted messages are
+ * handed to the dispatcher, and the refused ones to the {@link Rejection}.
+ * <p>
+ * Each admitted message must be {@linkplain #completed(long, boolean) completed} or
+ * {@linkplain #cancel() cancelled}, so the concurrency slot is released and the breaker records its outcome.
+ */
+class Admission {
+
+  /**
+   * Receives the messages refused by the admission.
+   */
+  @FunctionalInterface
+  interface Rejection {
+
+    /**
+     * Called when a message is refused.
+     *
+     * @param message   the message
+     * @param failure   the failure to reply with
+     * @param spoolable whether or not the message may be spooled and replayed later, as the endpoint is unavailable
+     */
+    void reject(Message<Object> message, Reply failure, boolean spoolable);
+  }
+
+  private final Vertx vertx;
+  private final OutboundMapping outbound;
+  private final String uri;
+  private final Handler<Message<Object>> dispatcher;
+  private final Rejection rejection;
+
+  private final CircuitBreaker breaker;
+  private final LongAdder shortCircuited = new LongAdder();
+
+  private final TokenBucket bucket;
+  private final ArrayDeque<Message<Object>> delayed = new ArrayDeque<>();
+  private final LongAdder rateRejected = new LongAdder();
+
+  private final ConcurrencyLimiter limiter;
+  private final PendingQueue<Message<Object>> pending;
+  private final LongAdder rejected = new LongAdder();
+  private volatile Context context;
+
+  /**
+   * Creates the admission of the given mapping.
+   *
+   * @param vertx      the Vert.x instance
+   * @param outbound   the mapping
+   * @param uri        the URI of the endpoint, used in the failures
+   * @param dispatcher called with the admitted messages
+   * @param rejection  called with the refused messages
+   */
+  Admission(Vertx vertx, OutboundMapping outbound, String uri, Handler<Message<Object>> dispatcher,
+            Rejection rejection) {
+    this.vertx = vertx;
+    this.outbound = outbound;
+    this.uri = uri;
+    this.dispatcher = dispatcher;
+    this.rejection = rejection;
+    this.breaker = outbound.getCircuitBreaker() == null ? null : new CircuitBreaker(outbound.getCircuitBreaker());
+    this.bucket = TokenBucket.create(outbound);
+    this.pending = new PendingQueue<>(outbound.getMaxPending(), outbound.getPriorityAging());
+    if (outbound.getMaxConcurrency() > 0 || outbound.isAdaptiveConcurrency()) {
+      int max = outbound.getMaxConcurrency() > 0 ? outbound.getMaxConcurrency() : 1000;
+      this.limiter = new ConcurrencyLimiter(max, outbound.isAdaptiveConcurrency());
+    } else {
+      this.limiter = null;
+    }
+  }
+
+  /**
+   * Admits a message, now or later, or refuses it.
+   *
+   * @param message the message
+   */
+  void admit(Message<Object> message) {
+    if (breaker != null && !breaker.tryAcquire()) {
+      shortCircuited.increment();
+      rejection.reject(message, Reply.failure(ReplyFailure.RECIPIENT_FAILURE, OutboundMapping.CIRCUIT_OPEN_FAILURE_CODE,
+        "Circuit breaker open for the Camel endpoint " + uri), true);
+      return;
+    }
+    if (bucket != null) {
+      throttle(message);
+      return;
+    }
+    limit(message);
+  }
+
+  /**
+   * Admits the message once the rate limit allows it. The delayed messages wait in a bounded queue, in order, and the
+   * message is rejected when the queue is full.
+   */
+  private void throttle(Message<Object> message) {
+    long delay;
+    synchronized (delayed) {
+      if (delayed.isEmpty() && bucket.tryAcquire()) {
+        delay = 0;
+      } else if (delayed.size() < outbound.getMaxDelayed()) {
+        // The permits are reserved in order, so the timers fire in the order of the queue.
+        delay = Math.max(1, bucket.reserve());
+        delayed.add(message);
+      } else {
+        delay = -1;
+      }
+    }
+    if (delay == 0) {
+      limit(message);
+    } else if (delay > 0) {
+      vertx.setTimer(delay, id -> {
+        Message<Object> next;
+        synchronized (delayed) {
+          next = delayed.poll();
+        }
+        limit(next);
+      });
+    } else {
+      rateRejected.increment();
+      if (breaker != null) {
+        breaker.cancel();
+      }
+      rejection.reject(message, Reply.failure(ReplyFailure.RECIPIENT_FAILURE, OutboundMapping.REJECTED_FAILURE_CODE,
+        "Rate limit queue full for the Camel endpoint " + uri), false);
+    }
+  }
+
+  /**
+   * Admits the message if a concurrency slot is available, otherwise queues it.
+   */
+  private void limit(Message<Object> message) {
+    if (limiter == null || limiter.tryAcquire()) {
+      dispatcher.handle(message);
+      return;
+    }
+    context = vertx.getOrCreateContext();
+    Message<Object> dropped;
+    synchronized (pending) {
+      dropped = pending.offer(message, priority(message));
+    }
+    if (dropped != message) {
+      // A slot may have been released in the meantime.
+      drain();
+    }
+    if (dropped != null) {
+      rejected.increment();
+      if (breaker != null) {
+        breaker.cancel();
+      }
+      rejection.reject(dropped, Reply.failure(ReplyFailure.RECIPIENT_FAILURE, OutboundMapping.REJECTED_FAILURE_CODE,
+        "Concurrency limit reached for the Camel endpoint " + uri), false);
+    }
+  }
+
+  private int priority(Message<Object> message) {
+    Integer priority = outbound.getPriorityAddresses().get(message.address());
+    if (priority != null) {
+      return priority;
+    }
+    String header = outbound.getPriorityHeader();
+    if (header == null) {
+      return 0;
+    }
+    Object value = message.headers().get(header);
+    if (value == null && message.body() instanceof TypedMessage) {
+      value = ((TypedMessage) message.body()).header(header);
+    }
+    if (value == null) {
+      return 0;
+    }
+    int parsed;
+    try {
+      parsed = Integer.parseInt(value.toString().trim());
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+    // Set by the sender, so bounded.
+    return Math.max(outbound.getMinPriority(), Math.min(outbound.getMaxPriority(), parsed));
+  }
+
+  /**
+   * Dispatches the pending messages while slots are available. The messages are dispatched on the context of the
+   * event bus consumer.
+   */
+  private void drain() {
+    while (true) {
+      Message<Object> next;
+      synchronized (pending) {
+        if (pending.isEmpty() || !limiter.tryAcquire()) {
+          return;
+        }
+        next = pending.poll();
+      }
+      context.runOnContext(v -> dispatcher.handle(next));
+    }
+  }
+
+  /**
+   * Records the outcome of an admitted message, and releases its concurrency slot.
+   *
+   * @param start   the time at which the exchange started, in nanoseconds
+   * @param dropped whether or not the exchange has failed or timed out
+   */
+  void completed(long start, boolean dropped) {
+    if (breaker != null) {
+      breaker.record(dropped, System.nanoTime() - start);
+    }
+    if (limiter != null) {
+      limiter.release(System.nanoTime() - start, dropped);
+      drain();
+    }
+  }
+
+  /**
+   * Releases the concurrency slot of an admitted message that has not been sent, without recording an outcome: the
+   * error comes from the message, not from the endpoint.
+   */
+  void cancel() {
+    if (breaker != null) {
+      breaker.cancel();
+    }
+    if (limiter != null) {
+      limiter.cancel();
+      drain();
+    }
+  }
+
+  /**
+   * Checks the circuit breaker only, for the messages replayed from the spool.
+   *
+   * @return {@code true} if the message can be sent, {@code false} if the breaker is open
+   */
+  boolean tryAcquireCircuit() {
+    return breaker == null || breaker.tryAcquire();
+  }
+
+  /**
+   * Records the outcome of a message admitted by {@link #tryAcquireCircuit()}.
+   *
+   * @param start  the time at which the exchange started, in nanoseconds
+   * @param failed whether or not the exchange has failed
+   */
+  void recordCircuit(long start, boolean failed) {
+    if (breaker != null) {
+      breaker.record(failed, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Cancels a message admitted by {@link #tryAcquireCircuit()} that has not been sent.
+   */
+  void cancelCircuit() {
+    if (breaker != null) {
+      breaker.cancel();
+    }
+  }
+
+  int concurrencyLimit() {
+    return limiter == null ? -1 : limiter.limit();
+  }
+
+  int pending() {
+    synchronized (pending) {
+      return pending.size();
+    }
+  }
+
+  long rejected() {
+    return rejected.sum();
+  }
+
+  long rateRejected() {
+    return rateRejected.sum();
+  }
+
+  String circuitState() {
+    return breaker == null ? null : breaker.state().name();
+  }
+
+  long shortCircuited() {
+    return shortCircuited.sum();
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.core.buffer.Buffer;
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.TypeConverter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Converts the body of the messages of a mapping to the configured body type.
+ * <p>
+ * The Camel type converter registry is only queried the first time a body class is seen: the resolved conversion is
+ * cached per body class and reused for the following messages. Bodies that are already instances of the target type
+ * are returned as they are.
+ * <p>
+ * When no body type is configured, the body is returned unchanged, except Hawtbuf buffers that are converted to Vert.x
+ * buffers.
+ */
+class BodyConverter {
+
+  private static final Conversion IDENTITY = (msg, body) -> body;
+
+  private final Class<?> type;
+  private final ConcurrentMap<Class<?>, Conversion> conversions = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a new instance of {@link BodyConverter}.
+   *
+   * @param type the target type, {@code null} to keep the body as it is
+   */
+  BodyConverter(Class<?> type) {
+    this.type = type;
+  }
+
+  /**
+   * Converts the body of the given message.
+   *
+   * @param msg the message, must not be {@code null}
+   * @return the converted body, {@code null} if the message has no body
+   */
+  Object convert(Message msg) {
+    return convert(msg, msg.getBody());
+  }
+
+  /**
+   * Converts the given body, that is going to be set on the given message.
+   *
+   * @param msg  the message, must not be {@code null}, used to retrieve the exchange and the Camel context
+   * @param body the body, may be {@code null}
+   * @return the converted body, {@code null} if the body is {@code null}
+   */
+  Object convert(Message msg, Object body) {
+    if (body == null) {
+      return null;
+    }
+    if (type != null && type.isInstance(body)) {
+      // Fast path, nothing to convert.
+      return body;
+    }
+    return conversions.computeIfAbsent(body.getClass(), source -> resolve(msg, source)).apply(msg, body);
+  }
+
+  private Conversion resolve(Message msg, Class<?> source) {
+    Class<?> target = type;
+    if (target == null) {
+      if (!org.fusesource.hawtbuf.Buffer.class.isAssignableFrom(source)) {
+        return IDENTITY;
+      }
+      // Map to Vert.x buffers.
+      target = Buffer.class;
+    }
+    if (target.isAssignableFrom(source)) {
+      return IDENTITY;
+    }
+
+    Class<?> to = target;
+    TypeConverter converter = msg.getExchange().getContext().getTypeConverterRegistry().lookup(to, source);
+    if (converter == null) {
+      // No direct converter, let Camel try its fallback converters for each message.
+      return (m, body) -> fallback(to, m, body);
+    }
+    return (m, body) -> {
+      Object converted = converter.convertTo(to, m.getExchange(), body);
+      return converted != null ? converted : fallback(to, m, body);
+    };
+  }
+
+  private static Object fallback(Class<?> to, Message msg, Object body) {
+    Exchange exchange = msg.getExchange();
+    return exchange.getContext().getTypeConverter().convertTo(to, exchange, body);
+  }
+
+  @FunctionalInterface
+  private interface Conversion {
+    Object apply(Message msg, Object body);
+  }
+}
@@ -16,19 +16,27 @@
 package io.vertx.camel.impl;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import io.vertx.camel.CamelBridge;
 import io.vertx.camel.CamelBridgeOptions;
 import io.vertx.camel.CamelMapping;
 import io.vertx.camel.InboundMapping;
 import io.vertx.camel.OutboundMapping;
+import io.vertx.camel.TypedMessage;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.internal.logging.Logger;
 import io.vertx.core.internal.logging.LoggerFactory;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.core.streams.WriteStream;
 import org.apache.camel.CamelContext;
 import org.apache.camel.Consumer;
 import org.apache.camel.Endpoint;
@@ -46,9 +54,19 @@ public class CamelBridgeImpl implements CamelBridge {
   private final List<Consumer> camelConsumers = new ArrayList<>();
   private final List<Producer> camelProducers = new ArrayList<>();
   private final List<MessageConsumer> vertxConsumers = new ArrayList<>();
+  private final List<FromVertxToCamelProducer> vertxHandlers = new ArrayList<>();
+  private final List<CamelReadStream> readStreams = new CopyOnWriteArrayList<>();
+  private final List<CamelWriteStream> writeStreams = new CopyOnWriteArrayList<>();
 
   private static final Logger LOGGER = LoggerFactory.getLogger(CamelBridgeImpl.class);
   private final Vertx vertx;
+  private final ExchangeReaper reaper;
+  private final AddressTrie<FromVertxToCamelProducer> prefixes = new AddressTrie<>();
+  private PrefixRouter router;
+  private boolean stopped;
+
+  // The codecs registered by the bridges, per Vert.x instance.
+  private static final Map<Vertx, SharedCodecs> CODECS = new IdentityHashMap<>();
 
   /**
    * Creates an instance of the bridge.
@@ -63,9 +81,64 @@ public class CamelBridgeImpl implements CamelBridge {
     Objects.requireNonNull(camel);
     this.vertx = vertx;
 
+    // let Camel convert the Vert.x types without going through their textual form
+    VertxTypeConverters.register(camel.getTypeConverterRegistry());
+    // The expired exchanges are completed on worker threads, the rest of their route may block.
+    this.reaper = options.getMaxExchangeLifetime() > 0
+      ? new ExchangeReaper(options.getMaxExchangeLifetime(), task -> vertx.executeBlocking(() -> {
+        task.run();
+        return null;
+      }, false))
+      : null;
+
     // validate all endpoints eager so we get errors early
-    options.getInboundMappings().forEach(this::validate);
-    options.getOutboundMappings().forEach(this::validate);
+    options.getInboundMappings().forEach(inbound -> {
+      validate(inbound);
+      if (inbound.isStreaming() && inbound.isPublish()) {
+        throw new IllegalArgumentException("The inbound mapping " + inbound.getAddress()
+          + " cannot stream the bodies when publishing");
+      }
+      // The chunks are raw buffers, acknowledged one by one: the body type and the typed headers do not apply, and
+      // the exchange lasts as long as the transfer.
+      if (inbound.isStreaming() && (inbound.isTypedHeaders() || inbound.getBodyType() != null
+        || options.getMaxExchangeLifetime() > 0)) {
+        throw new IllegalArgumentException("The streaming inbound mapping " + inbound.getAddress()
+          + " cannot use typed headers, a body type or a maximum exchange lifetime");
+      }
+    });
+    options.getOutboundMappings().forEach(outbound -> {
+      if (outbound.getAddressPrefix() == null) {
+        Objects.requireNonNull(outbound.getAddress(), "The vert.x event bus address must not be `null`");
+      }
+      if (!outbound.getUris().isEmpty()) {
+        if (outbound.getUri() != null || outbound.getUriTemplate() != null) {
+          throw new IllegalArgumentException("The outbound mapping " + outbound.getUris()
+            + " must not also set a URI or a URI template");
+        }
+        outbound.getUris().forEach(this::resolve);
+      } else if (outbound.getUriTemplate() == null) {
+        resolve(outbound);
+      } else {
+        // The endpoints are only known when the messages are received, check the syntax of the template.
+        new UriTemplate(outbound.getUriTemplate());
+      }
+      if (outbound.isStreaming() && (!outbound.isBlocking() || outbound.getReplyCacheSize() > 0
+        || outbound.isCoalescing() || outbound.getSpool() != null)) {
+        throw new IllegalArgumentException("The streaming outbound mapping " + outbound.getAddress()
+          + " must be blocking, without reply cache, coalescing or spool");
+      }
+      if (outbound.getSpool() != null) {
+        Objects.requireNonNull(outbound.getSpool().getDirectory(), "The spool directory must not be `null`");
+      }
+      if ((outbound.getPriorityHeader() != null || !outbound.getPriorityAddresses().isEmpty())
+        && ((outbound.getMaxConcurrency() <= 0 && !outbound.isAdaptiveConcurrency()) || outbound.getMaxPending() == 0)) {
+        throw new IllegalArgumentException("The priorities of the outbound mapping " + outbound.getAddress()
+          + " require a concurrency limit and a pending queue");
+      }
+    });
+
+    acquireCodecs(vertx, new TypedMessageCodec(options.getHeaderDictionary(), options.getCompressionThreshold(),
+      options.getMaxDecompressedSize()));
 
     try {
       // setup the inbound and outbound bridge after camel has been started (so all camel components are started)
@@ -80,6 +153,12 @@ public class CamelBridgeImpl implements CamelBridge {
             // vert.x -> camel
             createOutboundBridge(vertx, outbound);
           }
+
+          if (!prefixes.isEmpty()) {
+            // the tree is complete, it is not modified once the router is registered
+            router = new PrefixRouter(vertx, prefixes);
+            vertx.eventBus().addOutboundInterceptor(router);
+          }
         }
 
         @Override
@@ -93,7 +172,28 @@ public class CamelBridgeImpl implements CamelBridge {
   }
 
   private void createOutboundBridge(Vertx vertx, OutboundMapping outbound) {
-    Endpoint endpoint = validate(outbound);
+    if (outbound.getUriTemplate() != null) {
+      // The producers are created and started on demand, and kept in the endpoint cache of the handler.
+      bind(outbound, new FromVertxToCamelProducer(vertx, camel, outbound, outbound.isBlocking(),
+        outbound.getWorkerExecutor()));
+      LOGGER.info("Created Vert.x message consumer for " + outbound.getUriTemplate() + " receiving messages from "
+        + outbound.getAddress());
+      return;
+    }
+
+    if (!outbound.getUris().isEmpty()) {
+      List<Producer> producers = new ArrayList<>();
+      for (String uri : outbound.getUris()) {
+        producers.add(createProducer(resolve(uri)));
+      }
+      bind(outbound, new FromVertxToCamelProducer(vertx, producers, outbound, outbound.isBlocking(),
+        outbound.getWorkerExecutor()));
+      LOGGER.info("Created Vert.x message consumer for " + outbound.getUris() + " receiving messages from "
+        + outbound.getAddress());
+      return;
+    }
+
+    Endpoint endpoint = resolve(outbound);
 
     Producer producer;
     try {
@@ -106,33 +206,110 @@ public class CamelBridgeImpl implements CamelBridge {
     LOGGER.debug("Creating Vert.x message consumer for " + outbound.getUri() + " receiving messages from "
       + outbound.getAddress());
 
-    vertxConsumers.add(vertx.eventBus().consumer(outbound.getAddress(),
-        new FromVertxToCamelProducer(vertx, producer, outbound, outbound.isBlocking(), outbound.getWorkerExecutor())));
+    bind(outbound, new FromVertxToCamelProducer(vertx, producer, outbound, outbound.isBlocking(),
+      outbound.getWorkerExecutor()));
 
     LOGGER.info("Created Vert.x message consumer for " + outbound.getUri() + " receiving messages from "
       + outbound.getAddress());
   }
 
+  private void bind(OutboundMapping outbound, FromVertxToCamelProducer handler) {
+    vertxHandlers.add(handler);
+    for (String address : outbound.getPriorityAddresses().keySet()) {
+      bind(address, handler);
+    }
+    if (outbound.getAddressPrefix() != null) {
+      prefixes.put(outbound.getAddressPrefix(), handler);
+      return;
+    }
+    bind(outbound.getAddress(), handler);
+  }
+
+  private void bind(String address, FromVertxToCamelProducer handler) {
+    vertxConsumers.add(vertx.eventBus().consumer(address, handler));
+  }
+
   private void createInboundBridge(Vertx vertx, InboundMapping inbound) {
     Endpoint endpoint = validate(inbound);
 
     try {
       LOGGER.debug("Creating camel consumer for " + inbound.getUri() + " sending messages to " + inbound.getAddress());
-      camelConsumers.add(endpoint.createConsumer(new CamelToVertxProcessor(vertx, inbound)));
+      camelConsumers.add(endpoint.createConsumer(new CamelToVertxProcessor(vertx, inbound, reaper)));
     } catch (Exception e) {
       throw new IllegalStateException("The endpoint " + inbound.getUri() + " does not support consumers", e);
     }
     LOGGER.info("Created camel consumer for " + inbound.getUri() + " sending messages to " + inbound.getAddress());
   }
 
+  /**
+   * Registers the codecs of the bridge, unless another bridge using the same Vert.x instance has already registered
+   * them. As the {@link TypedMessage} codec is the default codec of its type, the bridges sharing a Vert.x instance
+   * must configure it the same way.
+   *
+   * @throws IllegalStateException if the codecs are registered with other options, or by something else than a bridge
+   */
+  private static void acquireCodecs(Vertx vertx, TypedMessageCodec codec) {
+    synchronized (CODECS) {
+      SharedCodecs shared = CODECS.get(vertx);
+      if (shared != null) {
+        if (!shared.codec.hasSameOptions(codec)) {
+          throw new IllegalStateException("The bridges of a Vert.x instance must use the same header dictionary, "
+            + "compression threshold and maximum decompressed size");
+        }
+        shared.bridges++;
+        return;
+      }
+      vertx.eventBus().registerDefaultCodec(TypedMessage.class, codec);
+      try {
+        vertx.eventBus().registerCodec(new PassThroughCodec());
+      } catch (IllegalStateException e) {
+        vertx.eventBus().unregisterDefaultCodec(TypedMessage.class);
+        throw e;
+      }
+      CODECS.put(vertx, new SharedCodecs(codec));
+    }
+  }
+
+  /**
+   * Unregisters the codecs of the bridge when no other bridge uses them.
+   */
+  private static void releaseCodecs(Vertx vertx) {
+    synchronized (CODECS) {
+      SharedCodecs shared = CODECS.get(vertx);
+      if (shared != null && --shared.bridges == 0) {
+        CODECS.remove(vertx);
+        vertx.eventBus().unregisterDefaultCodec(TypedMessage.class);
+        vertx.eventBus().unregisterCodec(InboundMapping.PASS_THROUGH_CODEC);
+      }
+    }
+  }
+
   private Endpoint validate(CamelMapping mapping) {
     Objects.requireNonNull(mapping.getAddress(), "The vert.x event bus address must not be `null`");
-    Objects.requireNonNull(mapping.getUri(), "The endpoint uri must not be `null`");
-    Endpoint endpoint = camel.getEndpoint(mapping.getUri());
-    Objects.requireNonNull(endpoint, "Cannot find the endpoint " + mapping.getUri() + " in the camel context");
+    return resolve(mapping);
+  }
+
+  private Producer createProducer(Endpoint endpoint) {
+    try {
+      Producer producer = endpoint.createProducer();
+      camelProducers.add(producer);
+      return producer;
+    } catch (Exception e) {
+      throw new IllegalStateException("The endpoint " + endpoint.getEndpointUri() + " does not support producers", e);
+    }
+  }
+
+  private Endpoint resolve(String uri) {
+    Endpoint endpoint = camel.getEndpoint(uri);
+    Objects.requireNonNull(endpoint, "Cannot find the endpoint " + uri + " in the camel context");
     return endpoint;
   }
 
+  private Endpoint resolve(CamelMapping mapping) {
+    Objects.requireNonNull(mapping.getUri(), "The endpoint uri must not be `null`");
+    return resolve(mapping.getUri());
+  }
+
   @Override
   public Future<Void> start() {
     Future<Void> fut = vertx.<Void>executeBlocking(
@@ -159,8 +336,57 @@ public class CamelBridgeImpl implements CamelBridge {
           c.stop();
         });
         vertxConsumers.stream().forEach(MessageConsumer::unregister);
+        if (router != null) {
+          vertx.eventBus().removeOutboundInterceptor(router);
+        }
+        vertxHandlers.forEach(FromVertxToCamelProducer::close);
+        readStreams.forEach(CamelReadStream::close);
+        writeStreams.forEach(CamelWriteStream::close);
+        if (reaper != null) {
+          reaper.close();
+        }
+        if (!stopped) {
+          stopped = true;
+          releaseCodecs(vertx);
+        }
         return null;
       });
     return fut;
   }
+
+  @Override
+  public JsonObject metrics() {
+    JsonArray outbound = new JsonArray();
+    vertxHandlers.forEach(handler -> outbound.add(handler.metrics()));
+    return new JsonObject()
+      .put("outbound", outbound)
+      .put("reapedExchanges", reaper == null ? 0L : reaper.reaped());
+  }
+
+  @Override
+  public ReadStream<Object> readStream(String uri) {
+    return new CamelReadStream(vertx, resolve(uri), readStreams);
+  }
+
+  @Override
+  public WriteStream<Object> writeStream(String uri) {
+    Endpoint endpoint = resolve(uri);
+    Producer producer;
+    try {
+      producer = endpoint.createProducer();
+    } catch (Exception e) {
+      throw new IllegalStateException("The endpoint " + endpoint.getEndpointUri() + " does not support producers", e);
+    }
+    return new CamelWriteStream(vertx, producer, writeStreams);
+  }
+
+
+  private static final class SharedCodecs {
+    private final TypedMessageCodec codec;
+    private int bridges = 1;
+
+    private SharedCodecs(TypedMessageCodec codec) {
+      this.codec = codec;
+    }
+  }
 }
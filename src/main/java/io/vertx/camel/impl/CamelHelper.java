@@ -15,10 +15,11 @@
  */
 package io.vertx.camel.impl;
 
-import io.vertx.camel.InboundMapping;
 import io.vertx.core.eventbus.DeliveryOptions;
 import org.apache.camel.Message;
-import org.fusesource.hawtbuf.Buffer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * A set of helpers methods, used in both inbound and outbound conversion.
@@ -52,25 +53,21 @@ class CamelHelper {
   }
 
   /**
-   * Converts the body of the given message into the specified type. If the type is not specified in the
-   * {@link InboundMapping}, it returns the body as it is. However, if this payload is a Hawtbuf Buffer an automatic
-   * conversion to Vert.x buffer is done.
+   * Copies the headers of the given {@code message}, keeping their type. {@code null} values are ignored.
    *
-   * @param inbound the inbound mapping configuration
-   * @param msg     the message from camel
-   * @return the body to be sent on the event bus, the type of the returned object depends on the mapping
-   * configuration.
+   * @param msg        the message from Camel, must not be {@code null}
+   * @param headerCopy whether or not the headers need to be copied
+   * @return the headers, empty if the headers are not copied
    */
-  static Object convert(InboundMapping inbound, Message msg) {
-    if (inbound.getBodyType() != null) {
-      return msg.getBody(inbound.getBodyType());
-    } else {
-      Object body = msg.getBody();
-      if (body instanceof org.fusesource.hawtbuf.Buffer) {
-        // Map to Vert.x buffers.
-        return io.vertx.core.buffer.Buffer.buffer(((Buffer) body).toByteArray());
-      }
-      return body;
+  static Map<String, Object> getTypedHeaders(Message msg, boolean headerCopy) {
+    Map<String, Object> headers = new LinkedHashMap<>();
+    if (headerCopy && msg.hasHeaders()) {
+      msg.getHeaders().forEach((key, value) -> {
+        if (value != null) {
+          headers.put(key, value);
+        }
+      });
     }
+    return headers;
   }
 }
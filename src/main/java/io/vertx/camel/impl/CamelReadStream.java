@@ -0,0 +1,289 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.streams.ReadStream;
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.Consumer;
+import org.apache.camel.Endpoint;
+import org.apache.camel.Exchange;
+import org.apache.camel.Suspendable;
+import org.apache.camel.support.AsyncCallbackToCompletableFutureAdapter;
+import org.apache.camel.support.AsyncProcessorHelper;
+import org.apache.camel.support.service.ServiceHelper;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A read stream emitting the bodies of the exchanges received by a Camel consumer.
+ * <p>
+ * The consumer is started when a handler is set, and stopped when the handler is removed. An exchange is completed
+ * once its body has been handed to the handler: while the stream is paused, the exchanges are held, and the Camel
+ * consumer waits for their completion. Consumers polling their endpoint asynchronously (such as {@code seda}) do not
+ * wait, so the consumers supporting it are also suspended while there is no demand, and the exchanges stay in the
+ * endpoint. The consumers are started, suspended, resumed and stopped in order, on worker threads.
+ * <p>
+ * The stream is registered in the given collection while its consumer is started, so the bridge can close it.
+ */
+class CamelReadStream implements ReadStream<Object>, AsyncProcessor {
+
+  private final Context context;
+  private final Endpoint endpoint;
+  private final Collection<CamelReadStream> started;
+  private final ArrayDeque<Delivery> deliveries = new ArrayDeque<>();
+
+  private Handler<Object> handler;
+  private Handler<Throwable> exceptionHandler;
+  private Handler<Void> endHandler;
+  private long demand = Long.MAX_VALUE;
+  private Consumer consumer;
+  private boolean suspended;
+  private boolean closed;
+
+  CamelReadStream(Vertx vertx, Endpoint endpoint, Collection<CamelReadStream> started) {
+    this.context = vertx.getOrCreateContext();
+    this.endpoint = endpoint;
+    this.started = started;
+  }
+
+  @Override
+  public synchronized ReadStream<Object> exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler = handler;
+    return this;
+  }
+
+  @Override
+  public ReadStream<Object> handler(Handler<Object> handler) {
+    Consumer starting = null;
+    Consumer stopping = null;
+    boolean paused = false;
+    synchronized (this) {
+      this.handler = handler;
+      if (handler != null && consumer == null && !closed) {
+        try {
+          consumer = endpoint.createConsumer(this);
+        } catch (Exception e) {
+          fail(e);
+          return this;
+        }
+        starting = consumer;
+        paused = demand == 0 && suspend() != null;
+      } else if (handler == null && consumer != null) {
+        stopping = consumer;
+        consumer = null;
+        suspended = false;
+      }
+    }
+    if (starting != null) {
+      started.add(this);
+      Consumer service = starting;
+      boolean suspend = paused;
+      context.executeBlocking(() -> {
+        ServiceHelper.startService(service);
+        if (suspend) {
+          ServiceHelper.suspendService(service);
+        }
+        return null;
+      }).onFailure(this::fail);
+    } else if (stopping != null) {
+      started.remove(this);
+      Consumer service = stopping;
+      context.executeBlocking(() -> {
+        ServiceHelper.stopService(service);
+        return null;
+      });
+    } else {
+      drain();
+    }
+    return this;
+  }
+
+  @Override
+  public ReadStream<Object> pause() {
+    Consumer suspending;
+    synchronized (this) {
+      demand = 0;
+      suspending = suspend();
+    }
+    suspend(suspending);
+    return this;
+  }
+
+  @Override
+  public ReadStream<Object> resume() {
+    return fetch(Long.MAX_VALUE);
+  }
+
+  @Override
+  public ReadStream<Object> fetch(long amount) {
+    Consumer resuming = null;
+    synchronized (this) {
+      demand = Long.MAX_VALUE - demand > amount ? demand + amount : Long.MAX_VALUE;
+      if (suspended && demand > 0) {
+        suspended = false;
+        resuming = consumer;
+      }
+    }
+    if (resuming != null) {
+      Consumer service = resuming;
+      context.executeBlocking(() -> {
+        ServiceHelper.resumeService(service);
+        return null;
+      });
+    }
+    context.runOnContext(v -> drain());
+    return this;
+  }
+
+  @Override
+  public synchronized ReadStream<Object> endHandler(Handler<Void> handler) {
+    this.endHandler = handler;
+    return this;
+  }
+
+  @Override
+  public void process(Exchange exchange) throws Exception {
+    AsyncProcessorHelper.process(this, exchange);
+  }
+
+  @Override
+  public boolean process(Exchange exchange, AsyncCallback callback) {
+    synchronized (this) {
+      if (!closed) {
+        deliveries.add(new Delivery(exchange, callback));
+        context.runOnContext(v -> drain());
+        return false;
+      }
+    }
+    exchange.setException(new IllegalStateException("The stream of " + endpoint.getEndpointUri() + " is closed"));
+    callback.done(true);
+    return true;
+  }
+
+  @Override
+  public CompletableFuture<Exchange> processAsync(Exchange exchange) {
+    AsyncCallbackToCompletableFutureAdapter<Exchange> callback = new AsyncCallbackToCompletableFutureAdapter<>(exchange);
+    process(exchange, callback);
+    return callback.getFuture();
+  }
+
+  /**
+   * Closes the stream when the bridge is stopped: the consumer is stopped, and the held exchanges fail so they can be
+   * redelivered by the endpoint.
+   */
+  void close() {
+    Consumer stopped;
+    ArrayDeque<Delivery> held;
+    Handler<Void> end;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      stopped = consumer;
+      consumer = null;
+      held = new ArrayDeque<>(deliveries);
+      deliveries.clear();
+      end = endHandler;
+    }
+    started.remove(this);
+    ServiceHelper.stopService(stopped);
+    held.forEach(delivery -> {
+      delivery.exchange.setException(new IllegalStateException("The stream of " + endpoint.getEndpointUri()
+        + " is closed"));
+      delivery.callback.done(false);
+    });
+    if (end != null) {
+      context.runOnContext(v -> end.handle(null));
+    }
+  }
+
+  private void drain() {
+    while (true) {
+      Delivery next;
+      Handler<Object> current;
+      Consumer suspending = null;
+      synchronized (this) {
+        if (demand == 0 || deliveries.isEmpty() || handler == null) {
+          return;
+        }
+        next = deliveries.poll();
+        if (demand != Long.MAX_VALUE && --demand == 0) {
+          suspending = suspend();
+        }
+        current = handler;
+      }
+      suspend(suspending);
+      try {
+        current.handle(next.exchange.getIn().getBody());
+      } catch (Throwable e) {
+        next.exchange.setException(e);
+        fail(e);
+      } finally {
+        next.callback.done(false);
+      }
+    }
+  }
+
+  /**
+   * Marks the consumer as suspended if it supports it. Called with the lock held.
+   *
+   * @return the consumer to suspend, {@code null} if none
+   */
+  private Consumer suspend() {
+    if (suspended || !(consumer instanceof Suspendable)) {
+      return null;
+    }
+    suspended = true;
+    return consumer;
+  }
+
+  private void suspend(Consumer consumer) {
+    if (consumer != null) {
+      // The exchanges already received are held, the consumer stops receiving new ones.
+      context.executeBlocking(() -> {
+        ServiceHelper.suspendService(consumer);
+        return null;
+      });
+    }
+  }
+
+  private void fail(Throwable cause) {
+    Handler<Throwable> current;
+    synchronized (this) {
+      current = exceptionHandler;
+    }
+    if (current != null) {
+      context.runOnContext(v -> current.handle(cause));
+    }
+  }
+
+  private static final class Delivery {
+    private final Exchange exchange;
+    private final AsyncCallback callback;
+
+    private Delivery(Exchange exchange, AsyncCallback callback) {
+      this.exchange = exchange;
+      this.callback = callback;
+    }
+  }
+}
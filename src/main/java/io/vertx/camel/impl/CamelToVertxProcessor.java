@@ -15,18 +15,30 @@
  */
 package io.vertx.camel.impl;
 
+import io.netty.util.Timeout;
 import io.vertx.camel.InboundMapping;
+import io.vertx.camel.TypedMessage;
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.DeliveryOptions;
 import org.apache.camel.AsyncCallback;
 import org.apache.camel.AsyncProcessor;
 import org.apache.camel.Exchange;
+import org.apache.camel.ExchangeTimedOutException;
 import org.apache.camel.Message;
 import org.apache.camel.support.AsyncCallbackToCompletableFutureAdapter;
 import org.apache.camel.support.AsyncProcessorHelper;
 import org.apache.camel.support.ExchangeHelper;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Processor to send messages from Camel to Vert.x (inbound).
@@ -35,6 +47,14 @@ public class CamelToVertxProcessor implements AsyncProcessor {
 
   private final Vertx vertx;
   private final InboundMapping inbound;
+  private final BodyConverter converter;
+  private final DeliveryOptions sharedDelivery;
+  private final ExchangeReaper reaper;
+  private final TokenBucket bucket;
+  private final String routingHeader;
+  private final Map<String, String> routes;
+  // The number of exchanges waiting for the rate limit, guarded by the bucket.
+  private int delayed;
 
   /**
    * Creates a new instance of processor.
@@ -43,8 +63,59 @@ public class CamelToVertxProcessor implements AsyncProcessor {
    * @param inbound the inbound mapping (configuration), must not be {@code null}
    */
   public CamelToVertxProcessor(Vertx vertx, InboundMapping inbound) {
+    this(vertx, inbound, null);
+  }
+
+  /**
+   * Creates a new instance of processor.
+   *
+   * @param vertx   the Vert.x instance, must not be {@code null}
+   * @param inbound the inbound mapping (configuration), must not be {@code null}
+   * @param reaper  the reaper completing the exchanges waiting too long for a reply, {@code null} if disabled
+   */
+  CamelToVertxProcessor(Vertx vertx, InboundMapping inbound, ExchangeReaper reaper) {
     this.vertx = vertx;
     this.inbound = inbound;
+    this.reaper = reaper;
+    this.bucket = TokenBucket.create(inbound);
+    this.routingHeader = inbound.getRoutingHeader();
+    // Copied, so the routes cannot be modified once the bridge is created.
+    this.routes = new HashMap<>(inbound.getRoutes());
+    this.converter = new BodyConverter(inbound.getBodyType());
+    this.sharedDelivery = configure(new DeliveryOptions());
+  }
+
+  private DeliveryOptions createDeliveryOptions(Message in) {
+    boolean copy = inbound.isHeadersCopy() && !inbound.isTypedHeaders() && in.hasHeaders();
+    if (!copy && inbound.isLightweight()) {
+      // Nothing specific to this message, the shared instance is never modified.
+      return sharedDelivery;
+    }
+    return configure(copy ? CamelHelper.getDeliveryOptions(in, true) : new DeliveryOptions());
+  }
+
+  private DeliveryOptions configure(DeliveryOptions delivery) {
+    if (inbound.getTimeout() > 0) {
+      delivery.setSendTimeout(inbound.getTimeout());
+    }
+    if (inbound.getCodecName() != null) {
+      delivery.setCodecName(inbound.getCodecName());
+    }
+    // The pass-through codec cannot serialize the body, so it implies local delivery.
+    if (inbound.isLocalOnly() || InboundMapping.PASS_THROUGH_CODEC.equals(inbound.getCodecName())) {
+      delivery.setLocalOnly(true);
+    }
+    return delivery;
+  }
+
+  private String address(Message in) {
+    if (routingHeader != null) {
+      Object value = in.getHeader(routingHeader);
+      if (value != null) {
+        return routes.getOrDefault(value.toString(), inbound.getAddress());
+      }
+    }
+    return inbound.getAddress();
   }
 
   @Override
@@ -54,25 +125,91 @@ public class CamelToVertxProcessor implements AsyncProcessor {
 
   @Override
   public boolean process(Exchange exchange, AsyncCallback callback) {
+    if (bucket == null) {
+      return send(exchange, callback);
+    }
+    long delay;
+    synchronized (bucket) {
+      if (delayed == 0 && bucket.tryAcquire()) {
+        delay = 0;
+      } else if (delayed < inbound.getMaxDelayed()) {
+        // The permits are reserved in order, so the timers fire in the order of the exchanges.
+        delay = Math.max(1, bucket.reserve());
+        delayed++;
+      } else {
+        delay = -1;
+      }
+    }
+    if (delay == 0) {
+      return send(exchange, callback);
+    }
+    if (delay < 0) {
+      exchange.setException(new RejectedExecutionException("Rate limit queue full for the Vert.x address "
+        + inbound.getAddress()));
+      callback.done(true);
+      return true;
+    }
+    // Rate limit reached, the exchange completes (and so the Camel consumer continues) once the message is sent.
+    vertx.setTimer(delay, id -> {
+      synchronized (bucket) {
+        delayed--;
+      }
+      send(exchange, doneSync -> callback.done(false));
+    });
+    return false;
+  }
+
+  private boolean send(Exchange exchange, AsyncCallback callback) {
+    if (inbound.isStreaming()) {
+      return stream(exchange, callback);
+    }
     Message in = exchange.getIn();
 
-    Object body = CamelHelper.convert(inbound, in);
+    Object body = converter.convert(in);
 
-    DeliveryOptions delivery = CamelHelper.getDeliveryOptions(in, inbound.isHeadersCopy());
-    if (inbound.getTimeout() > 0) {
-      delivery.setSendTimeout(inbound.getTimeout());
+    if (inbound.isTypedHeaders()) {
+      body = new TypedMessage(body, CamelHelper.getTypedHeaders(in, inbound.isHeadersCopy()));
     }
+    DeliveryOptions delivery = createDeliveryOptions(in);
+    String address = address(in);
 
     try {
       if (inbound.isPublish()) {
-        vertx.eventBus().publish(inbound.getAddress(), body, delivery);
+        vertx.eventBus().publish(address, body, delivery);
       } else {
         if (ExchangeHelper.isOutCapable(exchange)) {
-          vertx.eventBus().request(inbound.getAddress(), body, delivery).onComplete(reply -> {
-            Message out = exchange.getOut();
+          // Only one of the reply and the reaper completes the exchange.
+          AtomicBoolean completed = new AtomicBoolean();
+          Timeout deadline = reaper == null ? null : reaper.schedule(completed, () -> {
+            exchange.setException(new ExchangeTimedOutException(exchange, reaper.lifetime(),
+              "No reply received from " + address));
+            callback.done(false);
+          });
+          Future<io.vertx.core.eventbus.Message<Object>> request;
+          try {
+            request = vertx.eventBus().request(address, body, delivery);
+          } catch (Throwable e) {
+            if (!completed.compareAndSet(false, true)) {
+              // Already completed by the reaper.
+              return false;
+            }
+            if (deadline != null) {
+              deadline.cancel();
+            }
+            exchange.setException(e);
+            callback.done(true);
+            return true;
+          }
+          request.onComplete(reply -> {
+            if (!completed.compareAndSet(false, true)) {
+              // Already completed by the reaper.
+              return;
+            }
+            if (deadline != null) {
+              deadline.cancel();
+            }
             if (reply.succeeded()) {
-              out.setBody(reply.result().body());
-              MultiMapHelper.toMap(reply.result().headers(), out.getHeaders());
+              setReply(exchange, reply.result());
             } else {
               exchange.setException(reply.cause());
             }
@@ -83,7 +220,7 @@ public class CamelToVertxProcessor implements AsyncProcessor {
           return false;
         } else {
           // No reply expected.
-          vertx.eventBus().send(inbound.getAddress(), body, delivery);
+          vertx.eventBus().send(address, body, delivery);
         }
       }
     } catch (Throwable e) {
@@ -95,6 +232,97 @@ public class CamelToVertxProcessor implements AsyncProcessor {
     return true;
   }
 
+  private void setReply(Exchange exchange, io.vertx.core.eventbus.Message<Object> reply) {
+    // In lightweight mode, the reply is written on the incoming message instead of a new out message.
+    Message out = inbound.isLightweight() ? exchange.getMessage() : exchange.getOut();
+    Object replyBody = reply.body();
+    if (replyBody instanceof TypedMessage) {
+      out.setBody(((TypedMessage) replyBody).body());
+      out.getHeaders().putAll(((TypedMessage) replyBody).headers());
+    } else {
+      out.setBody(replyBody);
+    }
+    if (!reply.headers().isEmpty()) {
+      MultiMapHelper.toMap(reply.headers(), out.getHeaders());
+    }
+  }
+
+  /**
+   * Sends the body as a sequence of chunks. Each chunk is read on a worker thread once the previous one has been
+   * acknowledged, so a single chunk per exchange is held in memory.
+   */
+  private boolean stream(Exchange exchange, AsyncCallback callback) {
+    InputStream stream;
+    try {
+      stream = exchange.getIn().getMandatoryBody(InputStream.class);
+    } catch (Exception e) {
+      exchange.setException(e);
+      callback.done(true);
+      return true;
+    }
+    sendChunk(exchange, stream, address(exchange.getIn()), 0, callback);
+    return false;
+  }
+
+  private void sendChunk(Exchange exchange, InputStream stream, String address, long sequence,
+                         AsyncCallback callback) {
+    vertx.executeBlocking(() -> readChunk(stream)).onComplete(read -> {
+      if (read.failed()) {
+        failStream(exchange, stream, read.cause(), callback);
+        return;
+      }
+      Buffer chunk = read.result();
+      // A chunk shorter than the chunk size is the last one. If the body size is a multiple of the chunk size, an
+      // empty chunk ends the stream.
+      boolean end = chunk.length() < inbound.getChunkSize();
+      DeliveryOptions delivery = configure(sequence == 0 && inbound.isHeadersCopy()
+        ? CamelHelper.getDeliveryOptions(exchange.getIn(), true) : new DeliveryOptions())
+        .addHeader(InboundMapping.STREAM_ID_HEADER, exchange.getExchangeId())
+        .addHeader(InboundMapping.STREAM_SEQUENCE_HEADER, Long.toString(sequence))
+        .addHeader(InboundMapping.STREAM_END_HEADER, Boolean.toString(end));
+      vertx.eventBus().request(address, chunk, delivery).onComplete(reply -> {
+        if (reply.failed()) {
+          failStream(exchange, stream, reply.cause(), callback);
+        } else if (!end) {
+          sendChunk(exchange, stream, address, sequence + 1, callback);
+        } else {
+          closeQuietly(stream);
+          if (ExchangeHelper.isOutCapable(exchange)) {
+            setReply(exchange, reply.result());
+          }
+          callback.done(false);
+        }
+      });
+    });
+  }
+
+  private Buffer readChunk(InputStream stream) throws IOException {
+    byte[] bytes = new byte[inbound.getChunkSize()];
+    int count = 0;
+    while (count < bytes.length) {
+      int read = stream.read(bytes, count, bytes.length - count);
+      if (read < 0) {
+        break;
+      }
+      count += read;
+    }
+    return Buffer.buffer(count == bytes.length ? bytes : Arrays.copyOf(bytes, count));
+  }
+
+  private void failStream(Exchange exchange, InputStream stream, Throwable cause, AsyncCallback callback) {
+    closeQuietly(stream);
+    exchange.setException(cause);
+    callback.done(false);
+  }
+
+  private static void closeQuietly(InputStream stream) {
+    try {
+      stream.close();
+    } catch (IOException e) {
+      // Ignored, the stream has been fully read or the exchange has already failed.
+    }
+  }
+
   @Override
   public CompletableFuture<Exchange> processAsync(Exchange exchange) {
     AsyncCallbackToCompletableFutureAdapter<Exchange> callback = new AsyncCallbackToCompletableFutureAdapter<>(exchange);
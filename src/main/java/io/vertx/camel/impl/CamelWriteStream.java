@@ -0,0 +1,195 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.camel.TypedMessage;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.streams.WriteStream;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExchangePattern;
+import org.apache.camel.Message;
+import org.apache.camel.Producer;
+import org.apache.camel.support.AsyncProcessorConverterHelper;
+import org.apache.camel.support.service.ServiceHelper;
+
+import java.util.Collection;
+
+/**
+ * A write stream sending each item to a Camel producer, as the body of an {@code InOnly} exchange.
+ * <p>
+ * The items are handed to the producer in order, on a worker thread, so blocking producers do not block the event
+ * loop. The write queue is full when the number of exchanges in progress reaches the maximum size, and drained when it
+ * goes back to half this size. The producer is started when the stream is created, and stopped when it is ended. The
+ * stream is registered in the given collection until then, so the bridge can close it.
+ */
+class CamelWriteStream implements WriteStream<Object> {
+
+  static final int DEFAULT_WRITE_QUEUE_MAX_SIZE = 16;
+
+  private final Context context;
+  private final Producer producer;
+  private final AsyncProcessor processor;
+  private final Collection<CamelWriteStream> started;
+
+  private int maxSize = DEFAULT_WRITE_QUEUE_MAX_SIZE;
+  private int inFlight;
+  private boolean full;
+  private Handler<Void> drainHandler;
+  private Handler<Throwable> exceptionHandler;
+  private Promise<Void> ended;
+
+  CamelWriteStream(Vertx vertx, Producer producer, Collection<CamelWriteStream> started) {
+    this.context = vertx.getOrCreateContext();
+    this.producer = producer;
+    this.processor = AsyncProcessorConverterHelper.convert(producer);
+    this.started = started;
+    started.add(this);
+    // The blocking tasks of a context are ordered, so the producer is started before the first item is sent.
+    context.executeBlocking(() -> {
+      ServiceHelper.startService(producer);
+      return null;
+    }).onFailure(this::fail);
+  }
+
+  @Override
+  public synchronized WriteStream<Object> exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler = handler;
+    return this;
+  }
+
+  @Override
+  public Future<Void> write(Object data) {
+    synchronized (this) {
+      if (ended != null) {
+        return Future.failedFuture(new IllegalStateException("The stream of "
+          + producer.getEndpoint().getEndpointUri() + " has ended"));
+      }
+      inFlight++;
+    }
+    Promise<Void> promise = Promise.promise();
+    Exchange exchange = producer.getEndpoint().createExchange(ExchangePattern.InOnly);
+    Message in = exchange.getIn();
+    if (data instanceof TypedMessage) {
+      in.getHeaders().putAll(((TypedMessage) data).headers());
+      in.setBody(((TypedMessage) data).body());
+    } else {
+      in.setBody(data);
+    }
+    context.executeBlocking(() -> processor.process(exchange, doneSync -> completed(exchange, promise)))
+      .onFailure(cause -> {
+        exchange.setException(cause);
+        completed(exchange, promise);
+      });
+    return promise.future();
+  }
+
+  @Override
+  public Future<Void> end() {
+    Promise<Void> promise;
+    boolean idle;
+    synchronized (this) {
+      if (ended != null) {
+        return ended.future();
+      }
+      ended = promise = Promise.promise();
+      idle = inFlight == 0;
+    }
+    if (idle) {
+      stop(promise);
+    }
+    return promise.future();
+  }
+
+  @Override
+  public synchronized WriteStream<Object> setWriteQueueMaxSize(int maxSize) {
+    this.maxSize = maxSize;
+    return this;
+  }
+
+  @Override
+  public synchronized boolean writeQueueFull() {
+    full = inFlight >= maxSize;
+    return full;
+  }
+
+  @Override
+  public synchronized WriteStream<Object> drainHandler(Handler<Void> handler) {
+    this.drainHandler = handler;
+    return this;
+  }
+
+  /**
+   * Stops the producer when the bridge is stopped.
+   */
+  void close() {
+    started.remove(this);
+    ServiceHelper.stopService(producer);
+  }
+
+  private void completed(Exchange exchange, Promise<Void> promise) {
+    Handler<Void> drain = null;
+    Promise<Void> end = null;
+    synchronized (this) {
+      inFlight--;
+      if (full && inFlight <= maxSize / 2) {
+        full = false;
+        drain = drainHandler;
+      }
+      if (ended != null && inFlight == 0) {
+        end = ended;
+      }
+    }
+    Handler<Void> drained = drain;
+    Promise<Void> last = end;
+    context.runOnContext(v -> {
+      if (exchange.getException() != null) {
+        promise.fail(exchange.getException());
+        fail(exchange.getException());
+      } else {
+        promise.complete();
+      }
+      if (drained != null) {
+        drained.handle(null);
+      }
+      if (last != null) {
+        stop(last);
+      }
+    });
+  }
+
+  private void stop(Promise<Void> promise) {
+    started.remove(this);
+    context.<Void>executeBlocking(() -> {
+      ServiceHelper.stopService(producer);
+      return null;
+    }).onComplete(promise);
+  }
+
+  private void fail(Throwable cause) {
+    Handler<Throwable> current;
+    synchronized (this) {
+      current = exceptionHandler;
+    }
+    if (current != null) {
+      current.handle(cause);
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An input stream reassembling chunks written by Vert.x, read by a (blocking) Camel producer.
+ * <p>
+ * Each chunk is written with a callback, called once the reader starts consuming it: it acknowledges the chunk, or
+ * resumes the source stream. The writer is told when the number of queued chunks reaches the capacity, so the memory
+ * used by the stream stays bounded. The callbacks are never called while holding the lock of the stream.
+ */
+class ChunkedInputStream extends InputStream {
+
+  private final int capacity;
+  private final ArrayDeque<Buffer> chunks = new ArrayDeque<>();
+  private final ArrayDeque<Runnable> callbacks = new ArrayDeque<>();
+
+  private Buffer current;
+  private int position;
+  private boolean ended;
+  private IOException failure;
+  private boolean closed;
+  private Runnable closeHandler;
+
+  /**
+   * Creates a new instance of stream.
+   *
+   * @param capacity the number of chunks that can be queued before the writer should stop
+   */
+  ChunkedInputStream(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Writes a chunk. Once the stream is closed, the chunks are discarded, and their callback called immediately.
+   *
+   * @param chunk    the chunk
+   * @param consumed the callback called when the reader starts consuming the chunk
+   * @return {@code false} if the writer should stop writing until a chunk is consumed
+   */
+  boolean write(Buffer chunk, Runnable consumed) {
+    synchronized (this) {
+      if (!closed) {
+        chunks.add(chunk);
+        callbacks.add(consumed);
+        notifyAll();
+        return chunks.size() < capacity;
+      }
+    }
+    consumed.run();
+    return true;
+  }
+
+  /**
+   * Signals the end of the stream. The reader gets {@code -1} once the queued chunks are consumed.
+   */
+  synchronized void end() {
+    ended = true;
+    notifyAll();
+  }
+
+  /**
+   * Fails the stream. The reader gets the failure once the queued chunks are consumed.
+   *
+   * @param cause the cause
+   */
+  synchronized void fail(Throwable cause) {
+    failure = cause instanceof IOException ? (IOException) cause : new IOException(cause);
+    notifyAll();
+  }
+
+  /**
+   * Sets the handler called when the stream is closed, immediately if it is already closed.
+   *
+   * @param handler the handler
+   */
+  void closeHandler(Runnable handler) {
+    synchronized (this) {
+      if (!closed) {
+        closeHandler = handler;
+        return;
+      }
+    }
+    handler.run();
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] one = new byte[1];
+    return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] bytes, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    List<Runnable> consumed = new ArrayList<>(1);
+    try {
+      synchronized (this) {
+        while (current == null || position == current.length()) {
+          if (closed) {
+            throw new IOException("Stream closed");
+          }
+          if (!chunks.isEmpty()) {
+            current = chunks.poll();
+            position = 0;
+            consumed.add(callbacks.poll());
+          } else if (failure != null) {
+            throw failure;
+          } else if (ended) {
+            return -1;
+          } else {
+            try {
+              wait();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              throw new InterruptedIOException("Interrupted while waiting for the next chunk");
+            }
+          }
+        }
+        int count = Math.min(length, current.length() - position);
+        current.getBytes(position, position + count, bytes, offset);
+        position += count;
+        return count;
+      }
+    } finally {
+      consumed.forEach(Runnable::run);
+    }
+  }
+
+  @Override
+  public synchronized int available() {
+    return current == null ? 0 : current.length() - position;
+  }
+
+  /**
+   * Closes the stream. The queued chunks are discarded, and their callback called.
+   */
+  @Override
+  public void close() {
+    close(true);
+  }
+
+  /**
+   * Closes the stream without calling the callback of the queued chunks, when the transfer is rejected.
+   */
+  void abort() {
+    close(false);
+  }
+
+  private void close(boolean acknowledge) {
+    List<Runnable> discarded;
+    Runnable handler;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      current = null;
+      chunks.clear();
+      discarded = acknowledge ? new ArrayList<>(callbacks) : new ArrayList<>();
+      callbacks.clear();
+      handler = closeHandler;
+      notifyAll();
+    }
+    discarded.forEach(Runnable::run);
+    if (handler != null) {
+      handler.run();
+    }
+  }
+}
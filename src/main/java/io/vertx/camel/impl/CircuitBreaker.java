@@ -0,0 +1,165 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.camel.CircuitBreakerOptions;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A count-based circuit breaker. The outcomes of the last messages are kept in a ring buffer, so the failure and slow
+ * call rates are updated in constant time.
+ *
+ * @see CircuitBreakerOptions
+ */
+class CircuitBreaker {
+
+  enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private static final byte SUCCESS = 0;
+  private static final byte FAILURE = 1;
+  private static final byte SLOW = 2;
+
+  private final CircuitBreakerOptions options;
+  private final long slowCallDuration;
+  private final long openDuration;
+
+  private final byte[] window;
+  private int position;
+  private int count;
+  private int failures;
+  private int slowCalls;
+
+  private State state = State.CLOSED;
+  private long openedAt;
+  private int probes;
+  private int probeSuccesses;
+
+  CircuitBreaker(CircuitBreakerOptions options) {
+    this.options = options;
+    this.slowCallDuration = options.getSlowCallDuration() > 0
+      ? TimeUnit.MILLISECONDS.toNanos(options.getSlowCallDuration()) : Long.MAX_VALUE;
+    this.openDuration = TimeUnit.MILLISECONDS.toNanos(options.getOpenDuration());
+    this.window = new byte[options.getWindowSize()];
+  }
+
+  /**
+   * Checks whether a message can be processed.
+   *
+   * @return {@code true} if the message can be processed, {@code false} if it must fail immediately
+   */
+  synchronized boolean tryAcquire() {
+    switch (state) {
+      case CLOSED:
+        return true;
+      case OPEN:
+        if (System.nanoTime() - openedAt < openDuration) {
+          return false;
+        }
+        state = State.HALF_OPEN;
+        probes = 0;
+        probeSuccesses = 0;
+        // fall through, this message is the first probe
+      default:
+        if (probes >= options.getHalfOpenProbes()) {
+          return false;
+        }
+        probes++;
+        return true;
+    }
+  }
+
+  /**
+   * Releases a message accepted by {@link #tryAcquire()} that has not been processed, without recording an outcome.
+   */
+  synchronized void cancel() {
+    if (state == State.HALF_OPEN && probes > 0) {
+      probes--;
+    }
+  }
+
+  /**
+   * Records the outcome of a message accepted by {@link #tryAcquire()}.
+   *
+   * @param failed  whether or not the message has failed or timed out
+   * @param latency the processing time in nanoseconds
+   */
+  synchronized void record(boolean failed, long latency) {
+    byte outcome = failed ? FAILURE : latency > slowCallDuration ? SLOW : SUCCESS;
+    switch (state) {
+      case HALF_OPEN:
+        if (outcome != SUCCESS) {
+          open();
+        } else if (++probeSuccesses >= options.getHalfOpenProbes()) {
+          close();
+        }
+        break;
+      case CLOSED:
+        add(outcome);
+        if (count >= options.getMinimumCalls()
+          && (failures * 100 >= options.getFailureRateThreshold() * count
+          || slowCalls * 100 >= options.getSlowCallRateThreshold() * count)) {
+          open();
+        }
+        break;
+      default:
+        // Late outcome of a message accepted before the breaker opened.
+        break;
+    }
+  }
+
+  synchronized State state() {
+    return state;
+  }
+
+  private void add(byte outcome) {
+    if (count == window.length) {
+      remove(window[position]);
+    } else {
+      count++;
+    }
+    window[position] = outcome;
+    position = (position + 1) % window.length;
+    if (outcome == FAILURE) {
+      failures++;
+    } else if (outcome == SLOW) {
+      slowCalls++;
+    }
+  }
+
+  private void remove(byte outcome) {
+    if (outcome == FAILURE) {
+      failures--;
+    } else if (outcome == SLOW) {
+      slowCalls--;
+    }
+  }
+
+  private void open() {
+    state = State.OPEN;
+    openedAt = System.nanoTime();
+  }
+
+  private void close() {
+    state = State.CLOSED;
+    position = 0;
+    count = 0;
+    failures = 0;
+    slowCalls = 0;
+  }
+}
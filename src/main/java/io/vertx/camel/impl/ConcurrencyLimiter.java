@@ -0,0 +1,111 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+/**
+ * Limits the number of exchanges processed concurrently by an outbound mapping.
+ * <p>
+ * When adaptive, the limit follows an AIMD (additive increase, multiplicative decrease) algorithm driven by the
+ * observed latency: it grows by about one every {@code limit} successful exchanges, and is reduced by 10% when an
+ * exchange fails, times out or takes more than twice the no-load latency. The no-load latency is the minimum latency
+ * observed over the last window of samples, so it follows the capacity changes of the endpoint.
+ */
+class ConcurrencyLimiter {
+
+  private static final int INITIAL_LIMIT = 10;
+  private static final int WINDOW = 500;
+  private static final double TOLERANCE = 2.0;
+  private static final double BACKOFF = 0.9;
+
+  private final int max;
+  private final boolean adaptive;
+
+  private double limit;
+  private int inFlight;
+
+  private long baseline = Long.MAX_VALUE;
+  private long windowMin = Long.MAX_VALUE;
+  private int samples;
+
+  /**
+   * Creates a new instance of limiter.
+   *
+   * @param max      the maximum limit, must be strictly positive
+   * @param adaptive whether or not the limit is adapted to the observed latency, if not it is fixed to {@code max}
+   */
+  ConcurrencyLimiter(int max, boolean adaptive) {
+    this.max = max;
+    this.adaptive = adaptive;
+    this.limit = adaptive ? Math.min(INITIAL_LIMIT, max) : max;
+  }
+
+  /**
+   * Tries to acquire a slot.
+   *
+   * @return {@code true} if the exchange can be processed, {@code false} if the limit is reached
+   */
+  synchronized boolean tryAcquire() {
+    if (inFlight >= (int) limit) {
+      return false;
+    }
+    inFlight++;
+    return true;
+  }
+
+  /**
+   * Releases a slot, and adjusts the limit.
+   *
+   * @param latency the processing time of the exchange in nanoseconds
+   * @param dropped whether or not the exchange has failed or timed out
+   */
+  synchronized void release(long latency, boolean dropped) {
+    // Checked before the decrement: the limit only grows when it is actually used.
+    boolean saturated = inFlight >= (int) limit / 2;
+    inFlight--;
+    if (!adaptive) {
+      return;
+    }
+
+    if (!dropped) {
+      windowMin = Math.min(windowMin, latency);
+      if (++samples >= WINDOW || baseline == Long.MAX_VALUE) {
+        baseline = windowMin;
+        windowMin = Long.MAX_VALUE;
+        samples = 0;
+      }
+    }
+
+    if (dropped || latency > baseline * TOLERANCE) {
+      limit = Math.max(1, limit * BACKOFF);
+    } else if (saturated) {
+      limit = Math.min(max, limit + 1 / limit);
+    }
+  }
+
+  /**
+   * Releases a slot acquired for a message that has not been sent to the endpoint, without adjusting the limit.
+   */
+  synchronized void cancel() {
+    inFlight--;
+  }
+
+  /**
+   * @return the current limit
+   */
+  synchronized int limit() {
+    return (int) limit;
+  }
+}
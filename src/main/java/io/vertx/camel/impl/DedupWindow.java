@@ -0,0 +1,205 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the message identifiers seen during a time window.
+ * <p>
+ * The identifiers are stored as 64-bit hashes in two generations of open addressing sets of primitive longs, so an
+ * identifier costs 16 bytes at most and no object is allocated per message. The current generation receives the new
+ * identifiers. When the window elapses, it becomes the previous generation, and the oldest one is discarded. An
+ * identifier is so remembered between one and two windows. With 64-bit hashes, the probability of two distinct
+ * identifiers colliding is negligible, so no exact check is done.
+ */
+class DedupWindow {
+
+  private final long window;
+
+  private LongSet current = new LongSet();
+  private LongSet previous = new LongSet();
+  private long rotatedAt = System.nanoTime();
+
+  /**
+   * Creates a new instance of window.
+   *
+   * @param window the duration of the window in milliseconds
+   */
+  DedupWindow(long window) {
+    this.window = TimeUnit.MILLISECONDS.toNanos(window);
+  }
+
+  /**
+   * Records an identifier.
+   *
+   * @param id the identifier
+   * @return {@code true} if the identifier was not seen in the window, {@code false} if it is a duplicate
+   */
+  synchronized boolean add(String id) {
+    rotate();
+    long hash = hash(id);
+    if (previous.contains(hash)) {
+      return false;
+    }
+    return current.add(hash);
+  }
+
+  /**
+   * Forgets an identifier, when the message carrying it has been rejected before reaching the endpoint, so it can be
+   * retried.
+   *
+   * @param id the identifier
+   */
+  synchronized void remove(String id) {
+    long hash = hash(id);
+    current.remove(hash);
+    previous.remove(hash);
+  }
+
+  private void rotate() {
+    long elapsed = System.nanoTime() - rotatedAt;
+    if (elapsed < window) {
+      return;
+    }
+    LongSet oldest = previous;
+    previous = current;
+    current = oldest;
+    current.clear();
+    if (elapsed >= 2 * window) {
+      // Nothing was received during the last window.
+      previous.clear();
+    }
+    rotatedAt = System.nanoTime();
+  }
+
+  /**
+   * Computes a 64-bit hash of the given string (FNV-1a, with a final mix spreading the bits).
+   */
+  static long hash(String id) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < id.length(); i++) {
+      h ^= id.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /**
+   * A set of primitive longs, using open addressing with linear probing. {@code 0} marks the empty slots, so it is
+   * stored as a dedicated flag.
+   */
+  static final class LongSet {
+
+    private long[] table = new long[64];
+    private int size;
+    private boolean containsZero;
+
+    boolean contains(long value) {
+      if (value == 0) {
+        return containsZero;
+      }
+      int mask = table.length - 1;
+      for (int i = index(value, mask); table[i] != 0; i = (i + 1) & mask) {
+        if (table[i] == value) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    boolean add(long value) {
+      if (value == 0) {
+        boolean added = !containsZero;
+        containsZero = true;
+        return added;
+      }
+      int mask = table.length - 1;
+      int i = index(value, mask);
+      for (; table[i] != 0; i = (i + 1) & mask) {
+        if (table[i] == value) {
+          return false;
+        }
+      }
+      table[i] = value;
+      if (++size * 2 > table.length) {
+        grow();
+      }
+      return true;
+    }
+
+    boolean remove(long value) {
+      if (value == 0) {
+        boolean removed = containsZero;
+        containsZero = false;
+        return removed;
+      }
+      int mask = table.length - 1;
+      int i = index(value, mask);
+      while (table[i] != value) {
+        if (table[i] == 0) {
+          return false;
+        }
+        i = (i + 1) & mask;
+      }
+      // Shift the following entries back, so their probe sequences are not broken by the hole.
+      int gap = i;
+      for (int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+        int home = index(table[j], mask);
+        if (((j - home) & mask) >= ((j - gap) & mask)) {
+          table[gap] = table[j];
+          gap = j;
+        }
+      }
+      table[gap] = 0;
+      size--;
+      return true;
+    }
+
+    void clear() {
+      Arrays.fill(table, 0);
+      size = 0;
+      containsZero = false;
+    }
+
+    int size() {
+      return size + (containsZero ? 1 : 0);
+    }
+
+    private void grow() {
+      long[] old = table;
+      table = new long[old.length * 2];
+      int mask = table.length - 1;
+      for (long value : old) {
+        if (value != 0) {
+          int i = index(value, mask);
+          while (table[i] != 0) {
+            i = (i + 1) & mask;
+          }
+          table[i] = value;
+        }
+      }
+    }
+
+    private static int index(long value, int mask) {
+      return (int) (value ^ (value >>> 32)) & mask;
+    }
+  }
+}
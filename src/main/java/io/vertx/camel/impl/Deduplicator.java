@@ -0,0 +1,85 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.camel.TypedMessage;
+import io.vertx.core.eventbus.Message;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Detects the duplicated messages of an outbound mapping, from the identifier read in a header of the messages. The
+ * messages without identifier are never duplicates.
+ */
+class Deduplicator {
+
+  private final String header;
+  private final DedupWindow window;
+  private final LongAdder duplicates = new LongAdder();
+
+  /**
+   * Creates a new instance of deduplicator.
+   *
+   * @param header the header containing the identifier
+   * @param window the duration of the window in milliseconds
+   */
+  Deduplicator(String header, long window) {
+    this.header = header;
+    this.window = new DedupWindow(window);
+  }
+
+  /**
+   * Records the identifier of a message.
+   *
+   * @param message the message
+   * @return {@code true} if the identifier has already been seen in the window
+   */
+  boolean isDuplicate(Message<Object> message) {
+    String id = id(message);
+    if (id != null && !window.add(id)) {
+      duplicates.increment();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Forgets the identifier of a message rejected by the bridge, or failed by the endpoint, so the sender can retry it.
+   *
+   * @param message the message
+   */
+  void forget(Message<Object> message) {
+    String id = id(message);
+    if (id != null) {
+      window.remove(id);
+    }
+  }
+
+  /**
+   * @return the number of duplicated messages
+   */
+  long duplicates() {
+    return duplicates.sum();
+  }
+
+  private String id(Message<Object> message) {
+    Object id = message.headers().get(header);
+    if (id == null && message.body() instanceof TypedMessage) {
+      id = ((TypedMessage) message.body()).header(header);
+    }
+    return id == null ? null : id.toString();
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Endpoint;
+import org.apache.camel.Producer;
+import org.apache.camel.support.service.ServiceHelper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size-bounded cache of started producers, indexed by endpoint URI. When full, the least recently used producer is
+ * evicted, and stopped once its exchanges in progress have completed.
+ * <p>
+ * The producers are created, started and stopped on worker threads, without holding the lock of the cache, so a slow
+ * endpoint does not block the event loop or the other endpoints of the mapping.
+ */
+class EndpointCache {
+
+  private final Vertx vertx;
+  private final CamelContext camel;
+  private final int maxSize;
+  // In access order, the least recently used target first.
+  private final LinkedHashMap<String, Target> targets = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, Future<Void>> creating = new HashMap<>();
+  private final LongAdder evictions = new LongAdder();
+  private boolean closed;
+
+  /**
+   * Creates a new instance of cache.
+   *
+   * @param vertx   the Vert.x instance, running the creation of the producers
+   * @param camel   the Camel context resolving the endpoints
+   * @param maxSize the maximum number of producers
+   */
+  EndpointCache(Vertx vertx, CamelContext camel, int maxSize) {
+    this.vertx = vertx;
+    this.camel = camel;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Gets the target for the given URI, creating and starting its producer if needed. The target is acquired, and
+   * must be released once the exchange has completed.
+   *
+   * @param uri the endpoint URI
+   * @return a future completed with the target, or failed with an {@link IllegalArgumentException} if the endpoint
+   * cannot be resolved, or with the failure of the creation of the producer
+   */
+  Future<Target> acquire(String uri) {
+    Future<Void> creation;
+    synchronized (this) {
+      Target target = targets.get(uri);
+      if (target != null) {
+        // Acquired under the lock, so it cannot be retired before being used.
+        target.acquire();
+        return Future.succeededFuture(target);
+      }
+      creation = creating.get(uri);
+      if (creation == null) {
+        // Only one creation per URI, the concurrent callers wait for it.
+        creation = create(uri);
+        creating.put(uri, creation);
+      }
+    }
+    // Looked up again once created, the target may have been evicted in the meantime.
+    return creation.compose(v -> acquire(uri));
+  }
+
+  private Future<Void> create(String uri) {
+    return vertx.<Target>executeBlocking(() -> {
+      Endpoint endpoint;
+      try {
+        endpoint = camel.getEndpoint(uri);
+      } catch (RuntimeException e) {
+        throw new IllegalArgumentException("Cannot resolve the endpoint " + uri, e);
+      }
+      if (endpoint == null) {
+        throw new IllegalArgumentException("Cannot find the endpoint " + uri + " in the camel context");
+      }
+      Producer producer = endpoint.createProducer();
+      ServiceHelper.startService(producer);
+      return new Target(producer);
+    }, false).andThen(created -> {
+      List<Target> evicted = new ArrayList<>();
+      synchronized (this) {
+        creating.remove(uri);
+        if (created.succeeded()) {
+          if (closed) {
+            evicted.add(created.result());
+          } else {
+            targets.put(uri, created.result());
+            Iterator<Target> eldest = targets.values().iterator();
+            while (targets.size() > maxSize) {
+              evicted.add(eldest.next());
+              eldest.remove();
+              evictions.increment();
+            }
+          }
+        }
+      }
+      retire(evicted);
+    }).mapEmpty();
+  }
+
+  private void retire(List<Target> evicted) {
+    if (!evicted.isEmpty()) {
+      vertx.executeBlocking(() -> {
+        evicted.forEach(Target::retire);
+        return null;
+      }, false);
+    }
+  }
+
+  synchronized int size() {
+    return targets.size();
+  }
+
+  long evictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Stops all the producers.
+   */
+  void close() {
+    List<Target> all;
+    synchronized (this) {
+      closed = true;
+      all = new ArrayList<>(targets.values());
+      targets.clear();
+    }
+    all.forEach(Target::retire);
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Endpoint;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExchangePattern;
+import org.apache.camel.ExtendedCamelContext;
+import org.apache.camel.ExtendedExchange;
+import org.apache.camel.spi.ExchangeFactory;
+import org.apache.camel.support.service.ServiceHelper;
+
+/**
+ * Creates the exchanges of an outbound mapping. With pooled exchanges, the exchanges are taken from a copy of the
+ * exchange factory of the Camel context, and must be released once the reply has been sent.
+ */
+class ExchangePool {
+
+  private final ExchangeFactory factory;
+
+  /**
+   * Creates a new instance of pool.
+   *
+   * @param camel  the Camel context
+   * @param pooled whether or not the exchanges are pooled
+   */
+  ExchangePool(CamelContext camel, boolean pooled) {
+    if (pooled) {
+      // A copy of the factory of the context, which only pools when the context is configured to do so. It is built
+      // but not started: starting it registers it in the factory manager under its consumer, and the outbound side
+      // has no Camel consumer.
+      this.factory = camel.adapt(ExtendedCamelContext.class).getExchangeFactory().newExchangeFactory(null);
+      ServiceHelper.buildService(factory);
+    } else {
+      this.factory = null;
+    }
+  }
+
+  /**
+   * Creates an exchange.
+   *
+   * @param endpoint the endpoint receiving the exchange
+   * @param mep      the exchange pattern
+   * @return the exchange
+   */
+  Exchange create(Endpoint endpoint, ExchangePattern mep) {
+    if (factory == null) {
+      return endpoint.createExchange(mep);
+    }
+    // Released explicitly once the reply has been sent.
+    Exchange exchange = factory.create(endpoint, false);
+    exchange.setPattern(mep);
+    // A pooled exchange keeps the endpoint it was first created for, and the targets of the mapping may differ.
+    exchange.adapt(ExtendedExchange.class).setFromEndpoint(endpoint);
+    return exchange;
+  }
+
+  /**
+   * Releases an exchange that is not used anymore.
+   *
+   * @param exchange the exchange
+   */
+  void release(Exchange exchange) {
+    if (factory != null) {
+      factory.release(exchange);
+    }
+  }
+
+  /**
+   * Discards the pooled exchanges.
+   */
+  void close() {
+    if (factory != null) {
+      factory.purge();
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Completes the exchanges that have been waiting for an event bus reply for too long.
+ * <p>
+ * A single hashed wheel timer is shared by all the inbound mappings of a bridge: scheduling and cancelling a deadline
+ * is a constant time operation, and no Vert.x timer is created per exchange. The timer thread only claims the expired
+ * exchanges; their completion, which runs the rest of the Camel route, is handed to an executor so a slow route does
+ * not delay the other expirations.
+ */
+class ExchangeReaper {
+
+  private final long lifetime;
+  private final Executor executor;
+  private final HashedWheelTimer timer;
+  private final LongAdder reaped = new LongAdder();
+
+  /**
+   * Creates a new instance of reaper.
+   *
+   * @param lifetime the maximum lifetime of the exchanges in milliseconds, must be strictly positive
+   * @param executor the executor completing the expired exchanges
+   */
+  ExchangeReaper(long lifetime, Executor executor) {
+    this.lifetime = lifetime;
+    this.executor = executor;
+    this.timer = new HashedWheelTimer(new DefaultThreadFactory("vertx-camel-bridge-reaper", true),
+      100, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @return the maximum lifetime of the exchanges in milliseconds
+   */
+  long lifetime() {
+    return lifetime;
+  }
+
+  /**
+   * Schedules the expiration of an exchange.
+   *
+   * @param completed  the flag set by whoever completes the exchange first, the reply or the reaper
+   * @param expiration the task completing the exchange, run on the executor if the reaper sets the flag
+   * @return the deadline, cancelled when the exchange completes normally
+   */
+  Timeout schedule(AtomicBoolean completed, Runnable expiration) {
+    return timer.newTimeout(t -> {
+      if (completed.compareAndSet(false, true)) {
+        // Counted before the completion, so the exchange is never seen completed before being counted.
+        reaped.increment();
+        executor.execute(expiration);
+      }
+    }, lifetime, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @return the number of exchanges completed by the reaper
+   */
+  long reaped() {
+    return reaped.sum();
+  }
+
+  /**
+   * Stops the timer, the pending deadlines are discarded.
+   */
+  void close() {
+    timer.stop();
+  }
+}
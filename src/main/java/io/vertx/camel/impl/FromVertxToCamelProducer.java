@@ -15,26 +15,50 @@
  */
 package io.vertx.camel.impl;
 
+import io.vertx.camel.LoadBalancing;
 import io.vertx.camel.OutboundMapping;
+import io.vertx.camel.TypedMessage;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.WorkerExecutor;
-import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.json.JsonObject;
 import org.apache.camel.*;
-import org.apache.camel.support.AsyncProcessorConverterHelper;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 /**
  * Handles the transfer from Vert.x message to Camel (outbound).
+ * <p>
+ * Each message goes through the optional features of the mapping, implemented by collaborators: the
+ * {@linkplain OutboundStreams streamed bodies}, the {@linkplain Deduplicator deduplication}, the
+ * {@linkplain ReplySharing reply cache and coalescing}, the {@linkplain Spooler spool}, and the
+ * {@linkplain Admission admission} (circuit breaker, rate limit and concurrency limit). The admitted message is then
+ * sent to its {@linkplain Targets target}, in an exchange created by the {@link ExchangePool}.
  */
 public class FromVertxToCamelProducer implements Handler<io.vertx.core.eventbus.Message<Object>> {
 
-  private final Endpoint endpoint;
-  private final AsyncProcessor producer;
   private final OutboundMapping outbound;
   private final boolean blocking;
   private final Vertx vertx;
   private final WorkerExecutor pool;
+  private final BodyConverter converter;
+  private final String uri;
+
+  private final Targets targets;
+  private final ExchangePool exchanges;
+  private final Admission admission;
+  private final ReplySharing sharing;
+  private final Deduplicator dedup;
+  private final Spooler spooler;
+  private final OutboundStreams streams;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final LongAdder timeouts = new LongAdder();
 
   /**
    * Creates a new instance of producer.
@@ -48,70 +72,490 @@ public class FromVertxToCamelProducer implements Handler<io.vertx.core.eventbus.
    */
   public FromVertxToCamelProducer(Vertx vertx, Producer producer, OutboundMapping outbound, boolean blocking,
                                   WorkerExecutor  pool) {
-    this.endpoint = producer.getEndpoint();
-    this.producer = AsyncProcessorConverterHelper.convert(producer);
+    this(vertx, producer.getEndpoint().getCamelContext(), Targets.single(new Target(producer), outbound), outbound,
+      blocking, pool);
+  }
+
+  /**
+   * Creates a new instance of producer distributing the messages over several producers, using the load balancing
+   * strategy of the mapping.
+   *
+   * @param vertx     the vert.x instance
+   * @param producers the underlying producers, in the order of the URIs of the mapping, must not be empty
+   * @param outbound  the outbound configuration, must not be {@code null}
+   * @param blocking  whether or not the processing is blocking and so should not be run on the event
+   *                  loop
+   * @param pool      the pool on which the blocking code is going to be executed
+   */
+  public FromVertxToCamelProducer(Vertx vertx, List<Producer> producers, OutboundMapping outbound, boolean blocking,
+                                  WorkerExecutor pool) {
+    this(vertx, producers.get(0).getEndpoint().getCamelContext(), Targets.balanced(
+      new LoadBalancer(outbound.getLoadBalancing(), producers.stream().map(Target::new).collect(Collectors.toList()),
+        outbound.getUris(), outbound.getWeights(), outbound.getUnhealthyThreshold(), outbound.getUnhealthyCoolDown()),
+      outbound), outbound, blocking, pool);
+  }
+
+  /**
+   * Creates a new instance of producer sending the messages to the endpoints computed from the URI template of the
+   * mapping.
+   *
+   * @param vertx    the vert.x instance
+   * @param camel    the Camel context resolving the endpoints, must not be {@code null}
+   * @param outbound the outbound configuration, must not be {@code null}
+   * @param blocking whether or not the processing is blocking and so should not be run on the event
+   *                 loop
+   * @param pool     the pool on which the blocking code is going to be executed
+   */
+  public FromVertxToCamelProducer(Vertx vertx, CamelContext camel, OutboundMapping outbound, boolean blocking,
+                                  WorkerExecutor pool) {
+    this(vertx, camel, Targets.templated(vertx, camel, outbound), outbound, blocking, pool);
+  }
+
+  private FromVertxToCamelProducer(Vertx vertx, CamelContext camel, Targets targets, OutboundMapping outbound,
+                                   boolean blocking, WorkerExecutor pool) {
+    this.targets = targets;
+    this.uri = targets.uri();
     this.outbound = outbound;
     this.blocking = blocking;
     this.vertx = vertx;
     this.pool = pool;
+    // Without body type, the body is set as it is.
+    this.converter = outbound.getBodyType() == null ? null : new BodyConverter(outbound.getBodyType());
+    this.exchanges = new ExchangePool(camel, outbound.isPooledExchanges());
+    this.admission = new Admission(vertx, outbound, uri, this::dispatch, this::rejected);
+    this.sharing = new ReplySharing(outbound);
+    this.dedup = outbound.getDeduplicationHeader() == null ? null
+      : new Deduplicator(outbound.getDeduplicationHeader(), outbound.getDeduplicationWindow());
+    this.streams = outbound.isStreaming() ? new OutboundStreams(vertx, outbound, uri) : null;
+    this.spooler = outbound.getSpool() == null ? null : new Spooler(vertx, outbound, admission, this::replay);
+  }
+
+  /**
+   * Releases the resources held by this producer. Called when the bridge is stopped.
+   */
+  public void close() {
+    if (spooler != null) {
+      spooler.close();
+    }
+    exchanges.close();
+    if (streams != null) {
+      streams.close();
+    }
+    targets.close();
+  }
+
+  /**
+   * @return a snapshot of the metrics of this producer.
+   */
+  public JsonObject metrics() {
+    return new JsonObject()
+      .put("address", outbound.getAddress() != null ? outbound.getAddress() : outbound.getAddressPrefix() + "*")
+      .put("uri", uri)
+      .put("inFlight", inFlight.get())
+      .put("timeouts", timeouts.sum())
+      .put("concurrencyLimit", admission.concurrencyLimit())
+      .put("pending", admission.pending())
+      .put("rejected", admission.rejected())
+      .put("rateRejected", admission.rateRejected())
+      .put("circuitState", admission.circuitState())
+      .put("shortCircuited", admission.shortCircuited())
+      .put("cacheHits", sharing.hits())
+      .put("cacheMisses", sharing.misses())
+      .put("cacheSize", sharing.size())
+      .put("coalesced", sharing.coalesced())
+      .put("duplicates", dedup == null ? 0L : dedup.duplicates())
+      .put("endpoints", targets.size())
+      .put("endpointEvictions", targets.evictions())
+      .put("targets", targets.metrics())
+      .put("spoolSize", spooler == null ? 0 : spooler.size())
+      .put("spoolDropped", spooler == null ? 0L : spooler.dropped());
   }
 
   @Override
   public void handle(io.vertx.core.eventbus.Message<Object> vertxMessage) {
-    ExchangePattern mep = vertxMessage.replyAddress() != null ? ExchangePattern.InOut : ExchangePattern.InOnly;
-    Exchange exchange = endpoint.createExchange(mep);
+    if (streams != null && streams.handle(vertxMessage)) {
+      return;
+    }
+    if (dedup != null && dedup.isDuplicate(vertxMessage)) {
+      reply(vertxMessage, Reply.failure(ReplyFailure.RECIPIENT_FAILURE, OutboundMapping.DUPLICATE_FAILURE_CODE,
+        "Duplicated message for the Camel endpoint " + uri));
+      return;
+    }
+    if (sharing.answer(vertxMessage)) {
+      return;
+    }
+    if (spooler != null && spooler.isBusy()) {
+      // The spooled messages are being replayed, this one goes after them.
+      spool(vertxMessage, () -> admission.admit(vertxMessage));
+      return;
+    }
+    admission.admit(vertxMessage);
+  }
 
-    Message in = exchange.getIn();
-    in.setBody(vertxMessage.body());
-    if (outbound.isHeadersCopy()) {
-      MultiMapHelper.toMap(vertxMessage.headers(), in.getHeaders());
+  /**
+   * Called with the messages refused by the admission.
+   */
+  private void rejected(io.vertx.core.eventbus.Message<Object> vertxMessage, Reply failure, boolean spoolable) {
+    if (spoolable) {
+      spool(vertxMessage, () -> fail(vertxMessage, failure));
+    } else {
+      fail(vertxMessage, failure);
     }
+  }
 
+  /**
+   * Fails a message for the sender, which may retry it.
+   */
+  private void fail(io.vertx.core.eventbus.Message<Object> vertxMessage, Reply failure) {
+    forget(vertxMessage);
+    reply(vertxMessage, failure);
+  }
+
+  private void forget(io.vertx.core.eventbus.Message<Object> vertxMessage) {
+    if (dedup != null) {
+      dedup.forget(vertxMessage);
+    }
+  }
+
+  /**
+   * Fails a message that could not be sent to Camel.
+   */
+  private void abort(io.vertx.core.eventbus.Message<Object> vertxMessage, Throwable cause) {
+    admission.completed(System.nanoTime(), true);
+    spool(vertxMessage, () -> fail(vertxMessage, Reply.failure(ReplyFailure.RECIPIENT_FAILURE,
+      ReplyFailure.RECIPIENT_FAILURE.toInt(), cause.getMessage())));
+  }
+
+  /**
+   * Fails a message whose endpoint cannot be resolved from its headers. The error comes from the sender, not from the
+   * endpoint: the message is not spooled, and neither the circuit breaker nor the concurrency limit account for it.
+   */
+  private void reject(io.vertx.core.eventbus.Message<Object> vertxMessage, Throwable cause) {
+    admission.cancel();
+    fail(vertxMessage, Reply.failure(ReplyFailure.RECIPIENT_FAILURE, ReplyFailure.RECIPIENT_FAILURE.toInt(),
+      cause.getMessage()));
+  }
+
+  private void completed(long start, boolean dropped) {
+    inFlight.decrementAndGet();
+    admission.completed(start, dropped);
+  }
+
+  /**
+   * Dispatches an admitted message to its target. With a URI template, the target is resolved first: its producer may
+   * have to be created, on a worker thread.
+   */
+  private void dispatch(io.vertx.core.eventbus.Message<Object> vertxMessage) {
+    if (!targets.isTemplated()) {
+      Target target = targets.acquire();
+      execute(() -> send(vertxMessage, target));
+      return;
+    }
+    String resolved;
+    try {
+      resolved = targets.resolve(vertxMessage);
+    } catch (IllegalArgumentException e) {
+      reject(vertxMessage, e);
+      return;
+    }
+    targets.acquire(resolved).onComplete(acquired -> {
+      if (acquired.succeeded()) {
+        execute(() -> send(vertxMessage, acquired.result()));
+      } else if (acquired.cause() instanceof IllegalArgumentException) {
+        reject(vertxMessage, acquired.cause());
+      } else {
+        abort(vertxMessage, acquired.cause());
+      }
+    });
+  }
+
+  /**
+   * Runs the sending of an exchange, on a worker thread if the processing is blocking.
+   */
+  private void execute(Runnable task) {
     if (blocking) {
       if (pool == null) {
         vertx.executeBlocking(() -> {
-          producer.process(exchange, new CamelProducerCallback(exchange, vertxMessage));
+          task.run();
           return null;
         });
       } else {
         pool.executeBlocking(() -> {
-          producer.process(exchange, new CamelProducerCallback(exchange, vertxMessage));
+          task.run();
           return null;
         });
       }
     } else {
-      producer.process(exchange, new CamelProducerCallback(exchange, vertxMessage));
+      task.run();
     }
+  }
 
+  private void send(io.vertx.core.eventbus.Message<Object> vertxMessage, Target target) {
+    OutboundStream stream = streams == null ? null : streams.open(vertxMessage);
+    CamelProducerCallback callback = new CamelProducerCallback(vertxMessage, stream);
+    inFlight.incrementAndGet();
+    if (outbound.getTimeout() > 0) {
+      callback.timer = vertx.setTimer(outbound.getTimeout(), id -> callback.timeout());
+    }
+    callback.attempt(target);
+  }
 
+  private Object convert(Message in, Object body) throws Exception {
+    return converter == null ? body : converter.convert(in, body);
   }
 
-  private static final class CamelProducerCallback implements AsyncCallback {
+  /**
+   * Spools a message, to replay it later, if the mapping has a spool and the message does not expect a reply.
+   *
+   * @param otherwise called if the message cannot be spooled, on the current context if any
+   */
+  private void spool(io.vertx.core.eventbus.Message<Object> vertxMessage, Runnable otherwise) {
+    if (spooler == null || vertxMessage.replyAddress() != null) {
+      otherwise.run();
+      return;
+    }
+    String resolved;
+    try {
+      resolved = targets.isTemplated() ? targets.resolve(vertxMessage) : null;
+    } catch (IllegalArgumentException e) {
+      otherwise.run();
+      return;
+    }
+    spooler.append(vertxMessage, resolved, otherwise);
+  }
+
+  /**
+   * Sends a message replayed from the spool to its target.
+   */
+  private void replay(String resolved, TypedMessage message, Handler<Spooler.Outcome> done) {
+    if (resolved == null) {
+      Target target = targets.acquire();
+      execute(() -> replay(message, target, done));
+      return;
+    }
+    targets.acquire(resolved).onComplete(acquired -> {
+      if (acquired.succeeded()) {
+        execute(() -> replay(message, acquired.result(), done));
+      } else if (acquired.cause() instanceof IllegalArgumentException) {
+        // The endpoint cannot be resolved anymore, retrying would not help.
+        done.handle(Spooler.Outcome.INVALID);
+      } else {
+        done.handle(Spooler.Outcome.FAILED);
+      }
+    });
+  }
+
+  private void replay(TypedMessage message, Target target, Handler<Spooler.Outcome> done) {
+    Exchange exchange = exchanges.create(target.endpoint(), ExchangePattern.InOnly);
+    Message in = exchange.getIn();
+    in.getHeaders().putAll(message.headers());
+    try {
+      in.setBody(convert(in, message.body()));
+    } catch (Exception e) {
+      // Never convertible, skipped so it does not block the journal.
+      target.release();
+      exchanges.release(exchange);
+      done.handle(Spooler.Outcome.INVALID);
+      return;
+    }
+    target.processor().process(exchange, doneSync -> {
+      boolean failed = exchange.getException() != null;
+      targets.finished(target, failed);
+      exchanges.release(exchange);
+      done.handle(failed ? Spooler.Outcome.FAILED : Spooler.Outcome.REPLAYED);
+    });
+  }
+
+  /**
+   * Replies to the given message, and to the equivalent requests coalesced with it.
+   */
+  private void reply(io.vertx.core.eventbus.Message<Object> vertxMessage, Reply reply) {
+    if (streams != null) {
+      // Rejected before the creation of the exchange.
+      streams.abort(vertxMessage);
+    }
+    if (vertxMessage.replyAddress() == null) {
+      return;
+    }
+    reply.sendTo(vertxMessage);
+    sharing.replied(vertxMessage, reply);
+  }
+
+  private Reply createReply(Message msg) {
+    if (outbound.isTypedHeaders()) {
+      return new Reply(new TypedMessage(msg.getBody(), CamelHelper.getTypedHeaders(msg, true)), null);
+    } else if (outbound.isLightweight() && !msg.hasHeaders()) {
+      return new Reply(msg.getBody(), null);
+    } else {
+      return new Reply(msg.getBody(), CamelHelper.getDeliveryOptions(msg, true));
+    }
+  }
+
+  private final class CamelProducerCallback implements AsyncCallback {
 
-    private final Exchange exchange;
     private final io.vertx.core.eventbus.Message<Object> vertxMessage;
+    private final OutboundStream stream;
+    private final AtomicBoolean completed = new AtomicBoolean();
+    private final long start = System.nanoTime();
+    private volatile long timer = -1;
+    private Thread runner;
+    // The current attempt, replaced when the message fails over to another target.
+    private volatile Target target;
+    private volatile Exchange exchange;
+    private volatile boolean retryable;
 
-    public CamelProducerCallback(Exchange exchange, io.vertx.core.eventbus.Message<Object> vertxMessage) {
-      this.exchange = exchange;
+    public CamelProducerCallback(io.vertx.core.eventbus.Message<Object> vertxMessage, OutboundStream stream) {
       this.vertxMessage = vertxMessage;
+      this.stream = stream;
+    }
+
+    /**
+     * Sends the message to the given target, with a new exchange.
+     */
+    private void attempt(Target target) {
+      ExchangePattern mep = vertxMessage.replyAddress() != null ? ExchangePattern.InOut : ExchangePattern.InOnly;
+      Exchange exchange = exchanges.create(target.endpoint(), mep);
+      this.target = target;
+      this.exchange = exchange;
+
+      Message in = exchange.getIn();
+      Object body = stream == null ? vertxMessage.body() : stream.body();
+      if (outbound.isHeadersCopy() && !vertxMessage.headers().isEmpty()) {
+        MultiMapHelper.toMap(vertxMessage.headers(), in.getHeaders());
+      }
+      if (body instanceof TypedMessage) {
+        if (outbound.isHeadersCopy()) {
+          in.getHeaders().putAll(((TypedMessage) body).headers());
+        }
+        body = ((TypedMessage) body).body();
+      }
+      try {
+        in.setBody(convert(in, body));
+      } catch (Exception e) {
+        // Not sent to the endpoint, and failing the same way on the other targets.
+        retryable = false;
+        forget(vertxMessage);
+        exchange.setException(e);
+        done(true);
+        return;
+      }
+      // A streamed body is consumed by the first attempt.
+      retryable = stream == null;
+
+      if (blocking) {
+        // Track the worker thread, so the processing can be interrupted if the timeout is reached.
+        running(Thread.currentThread());
+        try {
+          target.processor().process(exchange, this);
+        } finally {
+          running(null);
+        }
+      } else {
+        target.processor().process(exchange, this);
+      }
+    }
+
+    /**
+     * Sends the failed message to the next healthy target, with the {@link LoadBalancing#FAILOVER} strategy.
+     *
+     * @return {@code true} if the message has been sent again, {@code false} if there is no target left
+     */
+    private boolean failover(Target target, Exchange exchange) {
+      Target next = retryable ? targets.next(target) : null;
+      if (next == null) {
+        return false;
+      }
+      targets.finished(target, true);
+      exchanges.release(exchange);
+      execute(() -> attempt(next));
+      return true;
+    }
+
+    private synchronized void running(Thread thread) {
+      if (thread != null) {
+        runner = thread;
+        return;
+      }
+      // A failover attempt may already run on another thread.
+      if (runner == Thread.currentThread()) {
+        runner = null;
+      }
+      // Clear a possible interruption coming from the timeout, the thread is going to be reused.
+      Thread.interrupted();
+    }
+
+    /**
+     * Called when the timeout is reached before the completion of the exchange.
+     */
+    private void timeout() {
+      if (!completed.compareAndSet(false, true)) {
+        return;
+      }
+      completed(start, true);
+      timeouts.increment();
+      // Failed for the sender, which may retry it.
+      forget(vertxMessage);
+
+      // The late completion of the exchange is ignored, and the processing interrupted if it runs on a worker. The
+      // exchange may still be used by Camel on another thread, so it is not modified.
+      synchronized (this) {
+        if (runner != null) {
+          runner.interrupt();
+        }
+      }
+
+      Reply failure = Reply.failure(ReplyFailure.TIMEOUT, ReplyFailure.TIMEOUT.toInt(),
+        "Timed out after waiting " + outbound.getTimeout() + "(ms) for the Camel endpoint " + uri);
+      if (stream != null) {
+        streams.end(stream, failure);
+      } else {
+        reply(vertxMessage, failure);
+      }
     }
 
     @Override
     public void done(boolean done) {
       // Method called in a Camel thread.
+      Target target = this.target;
+      Exchange exchange = this.exchange;
+      if (exchange.getException() != null && !completed.get() && failover(target, exchange)) {
+        return;
+      }
+      if (!completed.compareAndSet(false, true)) {
+        // Timed out, the sender has already been notified.
+        targets.finished(target, true);
+        exchanges.release(exchange);
+        return;
+      }
+      if (timer >= 0) {
+        vertx.cancelTimer(timer);
+      }
+      completed(start, exchange.getException() != null);
+      if (exchange.getException() != null) {
+        // Replayed later if the mapping has a spool, otherwise failed for the sender, which may retry it.
+        spool(vertxMessage, () -> forget(vertxMessage));
+      }
 
       // when we are done then send back reply to vertx if we are supposed to
-      if (vertxMessage.replyAddress() != null) {
+      if (stream != null) {
+        streams.end(stream, exchange.getException() != null
+          ? Reply.failure(ReplyFailure.RECIPIENT_FAILURE, ReplyFailure.RECIPIENT_FAILURE.toInt(),
+          exchange.getException().getMessage())
+          : createReply(exchange.getMessage()));
+      } else if (vertxMessage.replyAddress() != null) {
         // if the exchange failed with an exception then fail
         if (exchange.getException() != null) {
-          vertxMessage.fail(ReplyFailure.RECIPIENT_FAILURE.toInt(), exchange.getException().getMessage());
+          reply(vertxMessage, Reply.failure(ReplyFailure.RECIPIENT_FAILURE, ReplyFailure.RECIPIENT_FAILURE.toInt(),
+            exchange.getException().getMessage()));
         } else {
-          Message msg = exchange.hasOut() ? exchange.getOut() : exchange.getIn();
-          Object body = msg.getBody();
-          DeliveryOptions delivery = CamelHelper.getDeliveryOptions(msg, true);
-          vertxMessage.reply(body, delivery);
+          Reply reply = createReply(exchange.getMessage());
+          sharing.cache(vertxMessage, reply);
+          reply(vertxMessage, reply);
         }
       }
+      // The body and the headers have been copied or handed to the reply, the exchange can be reused.
+      targets.finished(target, exchange.getException() != null);
+      exchanges.release(exchange);
     }
   }
 
@@ -0,0 +1,248 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.camel.LoadBalancing;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Selects the target of each message of an outbound mapping sending to several Camel endpoints, and tracks the
+ * health of the targets.
+ * <p>
+ * A target failing a number of consecutive times is considered unhealthy and skipped during a cool-down period. It is
+ * then used again, and marked unhealthy again on the next failure. When all the targets are unhealthy, they are all
+ * used.
+ */
+class LoadBalancer {
+
+  private final LoadBalancing strategy;
+  private final Member[] members;
+  private final AtomicInteger next = new AtomicInteger();
+  private final int failureThreshold;
+  private final long coolDown;
+
+  /**
+   * Creates a new instance of load balancer.
+   *
+   * @param strategy         the strategy
+   * @param targets          the targets
+   * @param uris             the URIs of the targets
+   * @param weights          the weights of the targets
+   * @param failureThreshold the number of consecutive failures making a target unhealthy
+   * @param coolDown         the time during which an unhealthy target is skipped, in milliseconds
+   */
+  LoadBalancer(LoadBalancing strategy, List<Target> targets, List<String> uris, List<Integer> weights,
+               int failureThreshold, long coolDown) {
+    this.strategy = strategy;
+    this.failureThreshold = failureThreshold;
+    this.coolDown = TimeUnit.MILLISECONDS.toNanos(coolDown);
+    this.members = new Member[targets.size()];
+    for (int i = 0; i < members.length; i++) {
+      members[i] = new Member(targets.get(i), uris.get(i), weights.get(i));
+    }
+  }
+
+  /**
+   * Selects the target of a message.
+   *
+   * @return the target
+   */
+  Target select() {
+    long now = System.nanoTime();
+    Member selected;
+    switch (strategy) {
+      case FAILOVER:
+        selected = failover(now);
+        break;
+      case LEAST_IN_FLIGHT:
+        selected = leastInFlight(now);
+        break;
+      case WEIGHTED:
+        selected = weighted(now);
+        break;
+      default:
+        selected = roundRobin(now);
+        break;
+    }
+    selected.sent.increment();
+    return selected.target;
+  }
+
+  /**
+   * Selects the target receiving a message that has failed on the given target. Only the
+   * {@link LoadBalancing#FAILOVER} strategy retries the messages: the next healthy target, in declaration order, is
+   * used, so a message is tried at most once on each target.
+   *
+   * @param failed the target on which the message has failed
+   * @return the next target, {@code null} if the message must not be retried
+   */
+  Target next(Target failed) {
+    if (strategy != LoadBalancing.FAILOVER) {
+      return null;
+    }
+    long now = System.nanoTime();
+    boolean after = false;
+    for (Member member : members) {
+      if (member.target == failed) {
+        after = true;
+      } else if (after && member.isHealthy(now)) {
+        member.sent.increment();
+        return member.target;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Records the outcome of an exchange sent to a target.
+   *
+   * @param target the target
+   * @param failed whether or not the exchange has failed
+   */
+  void record(Target target, boolean failed) {
+    for (Member member : members) {
+      if (member.target == target) {
+        member.record(failed);
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return the metrics of the targets
+   */
+  JsonArray metrics() {
+    long now = System.nanoTime();
+    JsonArray metrics = new JsonArray();
+    for (Member member : members) {
+      metrics.add(new JsonObject()
+        .put("uri", member.uri)
+        .put("weight", member.weight)
+        .put("healthy", member.isHealthy(now))
+        .put("inFlight", member.target.inFlight())
+        .put("sent", member.sent.sum())
+        .put("failures", member.failures.sum()));
+    }
+    return metrics;
+  }
+
+  private boolean anyHealthy(long now) {
+    for (Member member : members) {
+      if (member.isHealthy(now)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Member failover(long now) {
+    for (Member member : members) {
+      if (member.isHealthy(now)) {
+        return member;
+      }
+    }
+    return members[0];
+  }
+
+  private Member roundRobin(long now) {
+    int start = next.getAndIncrement();
+    for (int i = 0; i < members.length; i++) {
+      Member member = members[Math.floorMod(start + i, members.length)];
+      if (member.isHealthy(now)) {
+        return member;
+      }
+    }
+    return members[Math.floorMod(start, members.length)];
+  }
+
+  private Member leastInFlight(long now) {
+    boolean healthyOnly = anyHealthy(now);
+    Member selected = null;
+    for (Member member : members) {
+      if ((!healthyOnly || member.isHealthy(now))
+        && (selected == null || member.target.inFlight() < selected.target.inFlight())) {
+        selected = member;
+      }
+    }
+    // The health may have changed concurrently.
+    return selected == null ? members[0] : selected;
+  }
+
+  /**
+   * Smooth weighted round robin: each target accumulates its weight, the target with the highest total is selected
+   * and its total is reduced by the sum of the weights. The selections are spread instead of grouped.
+   */
+  private synchronized Member weighted(long now) {
+    boolean healthyOnly = anyHealthy(now);
+    Member selected = null;
+    int total = 0;
+    for (Member member : members) {
+      if (healthyOnly && !member.isHealthy(now)) {
+        continue;
+      }
+      member.current += member.weight;
+      total += member.weight;
+      if (selected == null || member.current > selected.current) {
+        selected = member;
+      }
+    }
+    if (selected == null) {
+      // The health may have changed concurrently.
+      return members[0];
+    }
+    selected.current -= total;
+    return selected;
+  }
+
+  private final class Member {
+    private final Target target;
+    private final String uri;
+    private final int weight;
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long downUntil;
+    // Guarded by the load balancer lock.
+    private int current;
+
+    private Member(Target target, String uri, int weight) {
+      this.target = target;
+      this.uri = uri;
+      this.weight = weight;
+    }
+
+    private boolean isHealthy(long now) {
+      return consecutiveFailures.get() < failureThreshold || now - downUntil >= 0;
+    }
+
+    private void record(boolean failed) {
+      if (!failed) {
+        consecutiveFailures.set(0);
+        return;
+      }
+      failures.increment();
+      if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+        downUntil = System.nanoTime() + coolDown;
+      }
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.core.eventbus.Message;
+
+/**
+ * A body streamed from Vert.x to a Camel producer. The reply of the exchange is sent to the message ending the stream
+ * (the last chunk, or the message naming the file), whichever of the reply and this message comes first.
+ */
+class OutboundStream {
+
+  private final String id;
+  private final ChunkedInputStream body;
+  private Message<Object> replyTo;
+  private Reply reply;
+  private volatile long lastActivity = System.nanoTime();
+
+  /**
+   * Creates a new instance of stream.
+   *
+   * @param id   the id of the stream, {@code null} if the body is read from a file
+   * @param body the body
+   */
+  OutboundStream(String id, ChunkedInputStream body) {
+    this.id = id;
+    this.body = body;
+  }
+
+  String id() {
+    return id;
+  }
+
+  ChunkedInputStream body() {
+    return body;
+  }
+
+  /**
+   * Records that a chunk has been received or consumed.
+   */
+  void touch() {
+    lastActivity = System.nanoTime();
+  }
+
+  /**
+   * @return the time of the last chunk received or consumed, in nanoseconds
+   */
+  long lastActivity() {
+    return lastActivity;
+  }
+
+  /**
+   * Sets the message receiving the reply of the exchange.
+   *
+   * @param message the message
+   */
+  void replyTo(Message<Object> message) {
+    Reply result;
+    synchronized (this) {
+      replyTo = message;
+      result = reply;
+    }
+    if (result != null) {
+      result.sendTo(message);
+    }
+  }
+
+  /**
+   * Completes the stream with the reply of the exchange.
+   *
+   * @param reply the reply
+   */
+  void complete(Reply reply) {
+    Message<Object> message;
+    synchronized (this) {
+      this.reply = reply;
+      message = replyTo;
+    }
+    if (message != null) {
+      reply.sendTo(message);
+    }
+  }
+
+  /**
+   * @return the reply of the exchange if it has failed, {@code null} otherwise
+   */
+  synchronized Reply failure() {
+    return reply != null && reply.failed() ? reply : null;
+  }
+}
@@ -0,0 +1,264 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.camel.OutboundMapping;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.file.AsyncFile;
+import io.vertx.core.file.OpenOptions;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The streamed bodies of an outbound mapping. A body is either sent by chunks, the first message of the stream
+ * opening it, or read from a file of the stream file directory.
+ * <p>
+ * The message opening a stream goes through the admission checks as any message, and its exchange reads the body
+ * while the following chunks are written to it. The streams without chunk for the timeout of the mapping are failed.
+ */
+class OutboundStreams {
+
+  /**
+   * The number of chunks of a streamed body queued before the sender is paused.
+   */
+  private static final int STREAM_WINDOW = 4;
+
+  /**
+   * The time in milliseconds after which a stream without chunk is failed, for mappings without timeout.
+   */
+  private static final long STREAM_IDLE_TIMEOUT = 60_000;
+
+  private final Vertx vertx;
+  private final String uri;
+  private final Map<String, OutboundStream> streams = new ConcurrentHashMap<>();
+  // Indexed by identity, until the exchange of the first message is created.
+  private final Map<Message<Object>, OutboundStream> opening = Collections.synchronizedMap(new IdentityHashMap<>());
+  private final long expiration;
+  private final Path fileDirectory;
+
+  /**
+   * Creates the streams of the given mapping.
+   *
+   * @param vertx    the Vert.x instance
+   * @param outbound the mapping
+   * @param uri      the URI of the endpoint, used in the failures
+   */
+  OutboundStreams(Vertx vertx, OutboundMapping outbound, String uri) {
+    this.vertx = vertx;
+    this.uri = uri;
+    long idle = outbound.getTimeout() > 0 ? outbound.getTimeout() : STREAM_IDLE_TIMEOUT;
+    this.expiration = vertx.setPeriodic(idle, id -> expire(idle));
+    this.fileDirectory = outbound.getStreamFileDirectory() == null ? null
+      : Paths.get(outbound.getStreamFileDirectory()).toAbsolutePath().normalize();
+  }
+
+  /**
+   * Handles a streamed message. The first message of a stream opens it, and then goes through the admission checks
+   * as any message. The following chunks are written to the stream.
+   *
+   * @param message the message
+   * @return {@code true} if the message was a chunk of an open stream, or has been failed
+   */
+  boolean handle(Message<Object> message) {
+    String id = message.headers().get(OutboundMapping.STREAM_ID_HEADER);
+    if (id != null) {
+      OutboundStream stream;
+      if ("0".equals(message.headers().get(OutboundMapping.STREAM_SEQUENCE_HEADER))) {
+        stream = new OutboundStream(id, new ChunkedInputStream(STREAM_WINDOW));
+        streams.put(id, stream);
+        opening.put(message, stream);
+        write(id, stream, message);
+        return false;
+      }
+      stream = streams.get(id);
+      if (stream == null) {
+        fail(message, "Unknown stream " + id + " for the Camel endpoint " + uri);
+        return true;
+      }
+      Reply failure = stream.failure();
+      if (failure != null) {
+        // The exchange has already failed, the sender stops.
+        streams.remove(id);
+        failure.sendTo(message);
+        return true;
+      }
+      write(id, stream, message);
+      return true;
+    }
+    String file = message.headers().get(OutboundMapping.STREAM_FILE_HEADER);
+    if (file != null) {
+      Path path = fileDirectory == null ? null : fileDirectory.resolve(file).normalize();
+      if (path == null || !path.startsWith(fileDirectory)) {
+        fail(message, "The file " + file + " cannot be streamed to the Camel endpoint " + uri);
+        return true;
+      }
+      OutboundStream stream = new OutboundStream(null, new ChunkedInputStream(STREAM_WINDOW));
+      stream.replyTo(message);
+      opening.put(message, stream);
+      readFile(path, stream.body());
+    }
+    return false;
+  }
+
+  private static void fail(Message<Object> message, String cause) {
+    if (message.replyAddress() != null) {
+      Reply.failure(ReplyFailure.RECIPIENT_FAILURE, ReplyFailure.RECIPIENT_FAILURE.toInt(), cause).sendTo(message);
+    }
+  }
+
+  /**
+   * Takes the stream opened by a message, once its exchange is created.
+   *
+   * @param message the message
+   * @return the stream, {@code null} if the message does not open a stream
+   */
+  OutboundStream open(Message<Object> message) {
+    return opening.remove(message);
+  }
+
+  /**
+   * Aborts the stream opened by a message refused before the creation of its exchange. The following chunks are
+   * rejected too.
+   *
+   * @param message the message
+   */
+  void abort(Message<Object> message) {
+    OutboundStream stream = opening.remove(message);
+    if (stream != null) {
+      streams.values().remove(stream);
+      stream.body().abort();
+    }
+  }
+
+  /**
+   * Sends the reply of a streamed body to the message ending the stream, and releases the stream.
+   *
+   * @param stream the stream
+   * @param reply  the reply
+   */
+  void end(OutboundStream stream, Reply reply) {
+    if (stream.id() != null) {
+      // The following chunks, if any, are rejected as unknown.
+      streams.remove(stream.id(), stream);
+    }
+    stream.complete(reply);
+    stream.body().close();
+  }
+
+  /**
+   * Stops the expiration of the streams.
+   */
+  void close() {
+    vertx.cancelTimer(expiration);
+  }
+
+  /**
+   * Fails the streams whose sender has not sent any chunk for the given time, so an abandoned stream does not stay in
+   * memory.
+   */
+  private void expire(long idle) {
+    long limit = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(idle);
+    for (OutboundStream stream : streams.values()) {
+      if (stream.lastActivity() < limit && streams.remove(stream.id(), stream)) {
+        stream.body().fail(new IOException("No chunk received for " + idle + "(ms) on the stream " + stream.id()));
+      }
+    }
+  }
+
+  private void write(String id, OutboundStream stream, Message<Object> message) {
+    boolean end = Boolean.parseBoolean(message.headers().get(OutboundMapping.STREAM_END_HEADER));
+    Object body = message.body();
+    Buffer chunk;
+    if (body == null) {
+      chunk = Buffer.buffer();
+    } else if (body instanceof Buffer) {
+      chunk = (Buffer) body;
+    } else if (body instanceof byte[]) {
+      chunk = Buffer.buffer((byte[]) body);
+    } else {
+      chunk = Buffer.buffer(body.toString());
+    }
+    stream.touch();
+    // The last chunk is not acknowledged, it receives the reply of the exchange.
+    stream.body().write(chunk, end ? () -> { } : () -> {
+      stream.touch();
+      message.reply(null);
+    });
+    if (end) {
+      streams.remove(id);
+      stream.body().end();
+      stream.replyTo(message);
+    }
+  }
+
+  /**
+   * Reads the given file into the stream. The file is paused when the stream is full, and resumed when a chunk is
+   * consumed. The symbolic links are resolved first, the file must still be in the stream file directory.
+   */
+  private void readFile(Path path, ChunkedInputStream body) {
+    Context context = vertx.getOrCreateContext();
+    vertx.executeBlocking(() -> {
+      Path real = path.toRealPath();
+      if (!real.startsWith(fileDirectory.toRealPath())) {
+        throw new IOException("The file " + path + " is not in the stream file directory");
+      }
+      return real.toString();
+    }).compose(real -> vertx.fileSystem().open(real, new OpenOptions().setRead(true).setWrite(false)
+        .setCreate(false)))
+      .onComplete(opened -> {
+        if (opened.failed()) {
+          body.fail(opened.cause());
+          return;
+        }
+        AsyncFile file = opened.result();
+        AtomicBoolean released = new AtomicBoolean();
+        body.closeHandler(() -> context.runOnContext(v -> {
+          if (released.compareAndSet(false, true)) {
+            file.close();
+          }
+        }));
+        file.exceptionHandler(body::fail);
+        file.endHandler(v -> {
+          body.end();
+          if (released.compareAndSet(false, true)) {
+            file.close();
+          }
+        });
+        file.handler(chunk -> {
+          Runnable consumed = () -> context.runOnContext(v -> {
+            if (!released.get()) {
+              file.resume();
+            }
+          });
+          if (!body.write(chunk, consumed)) {
+            file.pause();
+          }
+        });
+      });
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.camel.InboundMapping;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+
+/**
+ * A codec handing the sent object to the local consumers, without any copy or serialization.
+ * <p>
+ * The consumers and the Camel route share the same instance, so the object must either be immutable or not be
+ * modified by the route once it has been sent, and consumers receiving it concurrently (publish) must not modify it.
+ * This codec cannot be used to send messages to other nodes, it must be used with local-only delivery.
+ *
+ * @see InboundMapping#withPassThroughCodec()
+ */
+public class PassThroughCodec implements MessageCodec<Object, Object> {
+
+  @Override
+  public void encodeToWire(Buffer buffer, Object o) {
+    throw new IllegalStateException("The " + name() + " codec only supports local delivery");
+  }
+
+  @Override
+  public Object decodeFromWire(int pos, Buffer buffer) {
+    throw new IllegalStateException("The " + name() + " codec only supports local delivery");
+  }
+
+  @Override
+  public Object transform(Object o) {
+    return o;
+  }
+
+  @Override
+  public String name() {
+    return InboundMapping.PASS_THROUGH_CODEC;
+  }
+
+  @Override
+  public byte systemCodecID() {
+    return -1;
+  }
+}
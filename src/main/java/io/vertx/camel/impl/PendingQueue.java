@@ -0,0 +1,107 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import java.util.Comparator;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded queue of the messages waiting for the concurrency limit, ordered by priority.
+ * <p>
+ * Each element is ordered by a virtual arrival time: its arrival time minus its priority multiplied by the aging. So
+ * an element waits at most {@code aging} milliseconds more than an element with a priority higher by 1, and the low
+ * priority elements are not starved. Elements with the same virtual arrival time are dispatched in arrival order.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @param <T> the type of element
+ */
+class PendingQueue<T> {
+
+  private final TreeSet<Entry<T>> entries = new TreeSet<>(
+    Comparator.<Entry<T>>comparingLong(entry -> entry.rank).thenComparingLong(entry -> entry.sequence));
+  private final int capacity;
+  private final long aging;
+  private long sequence;
+
+  /**
+   * Creates a new instance of queue.
+   *
+   * @param capacity the maximum number of elements
+   * @param aging    the aging in milliseconds
+   */
+  PendingQueue(int capacity, long aging) {
+    this.capacity = capacity;
+    this.aging = aging;
+  }
+
+  /**
+   * Adds an element. When the queue is full, the element evicts the element dispatched last, if it is dispatched
+   * after the new one.
+   *
+   * @param element  the element
+   * @param priority the priority of the element, higher values are dispatched first
+   * @return the element rejected by the queue: the given element, the evicted element, or {@code null} if the element
+   * has been added without eviction
+   */
+  T offer(T element, int priority) {
+    if (capacity == 0) {
+      return element;
+    }
+    long now = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    Entry<T> entry = new Entry<>(element, now - priority * aging, sequence++);
+    if (entries.size() < capacity) {
+      entries.add(entry);
+      return null;
+    }
+    Entry<T> last = entries.last();
+    if (entries.comparator().compare(entry, last) > 0) {
+      return element;
+    }
+    entries.pollLast();
+    entries.add(entry);
+    return last.element;
+  }
+
+  /**
+   * @return the next element to dispatch, {@code null} if the queue is empty
+   */
+  T poll() {
+    Entry<T> first = entries.pollFirst();
+    return first == null ? null : first.element;
+  }
+
+  boolean isEmpty() {
+    return entries.isEmpty();
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  private static final class Entry<T> {
+    private final T element;
+    private final long rank;
+    private final long sequence;
+
+    private Entry(T element, long rank, long sequence) {
+      this.element = element;
+      this.rank = rank;
+      this.sequence = sequence;
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryContext;
+
+/**
+ * An event bus outbound interceptor handing the messages sent to an address matching the prefix of an outbound
+ * mapping to the handler of this mapping, instead of delivering them.
+ * <p>
+ * As an interceptor, it only sees the messages sent from the local Vert.x instance. The other messages, including the
+ * replies, are delivered normally.
+ * <p>
+ * Interceptors run on the thread of the sender, which may be a worker or a non Vert.x thread. The intercepted messages
+ * are handed to the handlers on the context of the router, as they would be to an event bus consumer.
+ */
+class PrefixRouter implements Handler<DeliveryContext<Object>> {
+
+  private final Context context;
+  private final AddressTrie<FromVertxToCamelProducer> routes;
+
+  /**
+   * Creates a new instance of router.
+   *
+   * @param vertx  the Vert.x instance, providing the context on which the messages are handled
+   * @param routes the handlers indexed by address prefix, must not be modified once the router is registered
+   */
+  PrefixRouter(Vertx vertx, AddressTrie<FromVertxToCamelProducer> routes) {
+    this.context = vertx.getOrCreateContext();
+    this.routes = routes;
+  }
+
+  @Override
+  public void handle(DeliveryContext<Object> context) {
+    FromVertxToCamelProducer handler = routes.match(context.message().address());
+    if (handler == null) {
+      context.next();
+    } else {
+      io.vertx.core.eventbus.Message<Object> message = context.message();
+      this.context.runOnContext(v -> handler.handle(message));
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+
+/**
+ * The reply computed from a Camel exchange, which can be sent to several event bus messages.
+ */
+class Reply {
+
+  private final Object body;
+  private final DeliveryOptions delivery;
+
+  /**
+   * Creates a new reply.
+   *
+   * @param body     the body
+   * @param delivery the delivery options carrying the headers, {@code null} if none
+   */
+  Reply(Object body, DeliveryOptions delivery) {
+    this.body = body;
+    this.delivery = delivery;
+  }
+
+  /**
+   * Creates a reply failing the requester.
+   *
+   * @param type    the type of failure
+   * @param code    the failure code
+   * @param message the failure message
+   * @return the reply
+   */
+  static Reply failure(ReplyFailure type, int code, String message) {
+    // A reply exception sent as body fails the requester.
+    return new Reply(new ReplyException(type, code, message), null);
+  }
+
+  /**
+   * @return whether or not the reply fails the requester.
+   */
+  boolean failed() {
+    return body instanceof ReplyException;
+  }
+
+  /**
+   * Replies to the given message.
+   *
+   * @param message the message
+   */
+  void sendTo(Message<Object> message) {
+    if (delivery == null) {
+      message.reply(body);
+    } else {
+      message.reply(body, delivery);
+    }
+  }
+}
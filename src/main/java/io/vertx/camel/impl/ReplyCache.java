@@ -0,0 +1,109 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size-bounded cache of replies, evicting the least recently used entry. The entries expire after a fixed time to
+ * live, checked when they are read.
+ */
+class ReplyCache {
+
+  private final long ttl;
+  private final Map<Object, CachedReply> entries;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Creates a new instance of cache.
+   *
+   * @param maxSize the maximum number of entries
+   * @param ttl     the time to live of the entries in milliseconds
+   */
+  ReplyCache(int maxSize, long ttl) {
+    this.ttl = TimeUnit.MILLISECONDS.toNanos(ttl);
+    this.entries = new LinkedHashMap<Object, CachedReply>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Object, CachedReply> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * Gets the reply associated with the given key, if present and not expired.
+   *
+   * @param key the key
+   * @return the reply, {@code null} if none
+   */
+  Reply get(Object key) {
+    CachedReply entry;
+    synchronized (entries) {
+      entry = entries.get(key);
+      if (entry != null && System.nanoTime() - entry.created > ttl) {
+        entries.remove(key);
+        entry = null;
+      }
+    }
+    if (entry == null) {
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return entry.reply;
+  }
+
+  /**
+   * Stores a reply.
+   *
+   * @param key   the key
+   * @param reply the reply
+   */
+  void put(Object key, Reply reply) {
+    CachedReply entry = new CachedReply(reply, System.nanoTime());
+    synchronized (entries) {
+      entries.put(key, entry);
+    }
+  }
+
+  long hits() {
+    return hits.sum();
+  }
+
+  long misses() {
+    return misses.sum();
+  }
+
+  int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  private static final class CachedReply {
+    private final Reply reply;
+    private final long created;
+
+    private CachedReply(Reply reply, long created) {
+      this.reply = reply;
+      this.created = created;
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.camel.OutboundMapping;
+import io.vertx.core.eventbus.Message;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shares the replies of the Camel endpoint between equivalent requests of an outbound mapping: the cached replies are
+ * sent again, and the requests equivalent to a request in flight wait for its reply instead of creating an exchange.
+ * The requests are equivalent when they have the same {@linkplain RequestKey key}.
+ */
+class ReplySharing {
+
+  private final List<String> keyHeaders;
+  private final ReplyCache cache;
+  private final Map<List<Object>, List<Message<Object>>> flights;
+  private final LongAdder coalesced = new LongAdder();
+
+  /**
+   * Creates the reply sharing of the given mapping.
+   *
+   * @param outbound the mapping
+   */
+  ReplySharing(OutboundMapping outbound) {
+    this.keyHeaders = outbound.getRequestKeyHeaders();
+    this.cache = outbound.getReplyCacheSize() > 0
+      ? new ReplyCache(outbound.getReplyCacheSize(), outbound.getReplyCacheTtl()) : null;
+    this.flights = outbound.isCoalescing() ? new HashMap<>() : null;
+  }
+
+  /**
+   * Answers a request with a cached reply, or attaches it to an equivalent request in flight. Otherwise, the request
+   * starts a new flight, completed by {@link #replied(Message, Reply)}.
+   *
+   * @param message the message
+   * @return {@code true} if the message has been answered or will be with the reply of another request,
+   * {@code false} if it must be sent to the endpoint
+   */
+  boolean answer(Message<Object> message) {
+    if (message.replyAddress() == null || (cache == null && flights == null)) {
+      return false;
+    }
+    List<Object> key = RequestKey.of(message, keyHeaders);
+    if (cache != null) {
+      Reply cached = cache.get(key);
+      if (cached != null) {
+        cached.sendTo(message);
+        return true;
+      }
+    }
+    if (flights != null) {
+      synchronized (flights) {
+        List<Message<Object>> flight = flights.get(key);
+        if (flight != null) {
+          // An equivalent request is in flight, its reply is shared.
+          flight.add(message);
+          coalesced.increment();
+          return true;
+        }
+        flight = new ArrayList<>();
+        flight.add(message);
+        flights.put(key, flight);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Caches the successful reply of the endpoint to a request.
+   *
+   * @param message the request
+   * @param reply   the reply
+   */
+  void cache(Message<Object> message, Reply reply) {
+    if (cache != null) {
+      cache.put(RequestKey.of(message, keyHeaders), reply);
+    }
+  }
+
+  /**
+   * Sends the reply sent to a request to the equivalent requests coalesced with it.
+   *
+   * @param message the request
+   * @param reply   the reply
+   */
+  void replied(Message<Object> message, Reply reply) {
+    if (flights == null) {
+      return;
+    }
+    List<Object> key = RequestKey.of(message, keyHeaders);
+    List<Message<Object>> flight;
+    synchronized (flights) {
+      flight = flights.get(key);
+      // Only the first message of the flight (the one sent to Camel) completes it.
+      if (flight == null || flight.get(0) != message) {
+        return;
+      }
+      flights.remove(key);
+    }
+    for (int i = 1; i < flight.size(); i++) {
+      reply.sendTo(flight.get(i));
+    }
+  }
+
+  long hits() {
+    return cache == null ? 0 : cache.hits();
+  }
+
+  long misses() {
+    return cache == null ? 0 : cache.misses();
+  }
+
+  int size() {
+    return cache == null ? 0 : cache.size();
+  }
+
+  long coalesced() {
+    return coalesced.sum();
+  }
+}
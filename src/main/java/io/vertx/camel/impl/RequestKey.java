@@ -0,0 +1,64 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.camel.TypedMessage;
+import io.vertx.core.eventbus.Message;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the key identifying equivalent requests: the body, and the values of the selected headers.
+ * <p>
+ * The keys are lists, compared by value. Byte array bodies are copied and wrapped in a {@link ByteBuffer}, so they
+ * are compared by content. The body of a {@link TypedMessage} is unwrapped, and its headers are used.
+ */
+final class RequestKey {
+
+  private RequestKey() {
+    // Avoid direct instantiation.
+  }
+
+  /**
+   * Computes the key of the given message.
+   *
+   * @param message the message
+   * @param headers the names of the headers part of the key
+   * @return the key
+   */
+  static List<Object> of(Message<Object> message, List<String> headers) {
+    Object body = message.body();
+    Map<String, Object> typed = null;
+    if (body instanceof TypedMessage) {
+      typed = ((TypedMessage) body).headers();
+      body = ((TypedMessage) body).body();
+    }
+    if (body instanceof byte[]) {
+      body = ByteBuffer.wrap(((byte[]) body).clone());
+    }
+
+    Object[] key = new Object[headers.size() + 1];
+    key[0] = body;
+    for (int i = 0; i < headers.size(); i++) {
+      String name = headers.get(i);
+      key[i + 1] = typed != null && typed.containsKey(name) ? typed.get(name) : message.headers().getAll(name);
+    }
+    return Arrays.asList(key);
+  }
+}
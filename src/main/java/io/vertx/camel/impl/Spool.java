@@ -0,0 +1,193 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An append-only journal of records, stored in a memory-mapped file.
+ * <p>
+ * The file starts with a header containing the position of the first record, the end position and the number of
+ * records (3 integers), followed by the records, each one prefixed by its length. The header is updated after the
+ * record is written, so a record is only visible once complete. As the file is mapped, the written records survive a
+ * crash of the JVM, the operating system writing the pages back. The file is only forced to the storage device when
+ * the journal is closed: the records written since may be lost if the operating system crashes or the power fails.
+ * <p>
+ * The file is used as a circular buffer: when a record does not fit before the end of the file, it is written at the
+ * beginning, if the first records have been removed, and a marker tells the reader to go back to the beginning. The
+ * records are never moved, and only written to the free space, so a crash at any point leaves the journal as
+ * described by its header. When the journal is empty, the positions are reset to the beginning of the file.
+ * <p>
+ * The methods write to the mapped file, and so may block on I/O: they must not be called on an event loop.
+ */
+class Spool {
+
+  private static final int HEADER = 12;
+  // Written instead of a record length, the next record is at the beginning of the file.
+  private static final int WRAP = -1;
+
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final int capacity;
+
+  private int read;
+  private int write;
+  private int count;
+  private boolean closed;
+
+  /**
+   * Opens the journal stored in the given file, creating it if needed.
+   *
+   * @param file     the file
+   * @param capacity the size of the file in bytes
+   * @throws IOException if the file cannot be mapped
+   */
+  Spool(File file, int capacity) throws IOException {
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+      StandardOpenOption.WRITE);
+    this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    this.capacity = capacity;
+    read = buffer.getInt(0);
+    write = buffer.getInt(4);
+    count = buffer.getInt(8);
+    if (read < HEADER || read > capacity || write < HEADER || write > capacity || count < 0
+      || (count == 0 && read != write)) {
+      // New file (or a file written with another size), start from scratch.
+      read = HEADER;
+      write = HEADER;
+      count = 0;
+      writeHeader();
+    }
+  }
+
+  /**
+   * Appends a record.
+   *
+   * @param record the record
+   * @return {@code true} if the record has been appended, {@code false} if the journal is full or closed
+   */
+  synchronized boolean append(Buffer record) {
+    int length = 4 + record.length();
+    if (closed || length > capacity - HEADER) {
+      return false;
+    }
+    int position;
+    if (count > 0 && write <= read) {
+      // Wrapped, the free space is between the last and the first records.
+      if (write + length > read) {
+        return false;
+      }
+      position = write;
+    } else if (write + length <= capacity) {
+      position = write;
+    } else if (HEADER + length <= read) {
+      if (write + 4 <= capacity) {
+        buffer.putInt(write, WRAP);
+      }
+      position = HEADER;
+    } else {
+      return false;
+    }
+    buffer.putInt(position, record.length());
+    ByteBuffer target = buffer.duplicate();
+    target.position(position + 4);
+    target.put(record.getBytes());
+    write = position + length;
+    count++;
+    writeHeader();
+    return true;
+  }
+
+  /**
+   * @return the first record, {@code null} if the journal is empty
+   */
+  synchronized Buffer peek() {
+    if (count == 0 || closed) {
+      return null;
+    }
+    int first = first();
+    byte[] bytes = new byte[buffer.getInt(first)];
+    ByteBuffer source = buffer.duplicate();
+    source.position(first + 4);
+    source.get(bytes);
+    return Buffer.buffer(bytes);
+  }
+
+  /**
+   * Removes the first record.
+   */
+  synchronized void remove() {
+    if (count == 0 || closed) {
+      return;
+    }
+    count--;
+    if (count == 0) {
+      read = HEADER;
+      write = HEADER;
+    } else {
+      int first = first();
+      read = first + 4 + buffer.getInt(first);
+    }
+    writeHeader();
+  }
+
+  synchronized int size() {
+    return count;
+  }
+
+  synchronized boolean isEmpty() {
+    return count == 0;
+  }
+
+  /**
+   * Flushes and closes the journal. The records are kept in the file.
+   */
+  synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    buffer.force();
+    try {
+      channel.close();
+    } catch (IOException e) {
+      // Ignored, the mapping stays valid until it is garbage collected.
+    }
+  }
+
+  /**
+   * @return the position of the first record, following the wrap marker if any
+   */
+  private int first() {
+    if (read + 4 > capacity || buffer.getInt(read) == WRAP) {
+      return HEADER;
+    }
+    return read;
+  }
+
+  private void writeHeader() {
+    buffer.putInt(0, read);
+    buffer.putInt(4, write);
+    buffer.putInt(8, count);
+  }
+}
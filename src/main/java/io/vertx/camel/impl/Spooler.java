@@ -0,0 +1,317 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.camel.OutboundMapping;
+import io.vertx.camel.SpoolOptions;
+import io.vertx.camel.TypedMessage;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.Message;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stores the messages of an outbound mapping that cannot be sent to the Camel endpoint in a {@link Spool}, and replays
+ * them in order once the endpoint is available again.
+ * <p>
+ * The journal is only accessed by the ordered blocking tasks of the replay context, so the event loop does not wait
+ * for the file, and the order is kept. The replay handles one message at a time, at the replay rate, and only while
+ * the circuit breaker of the mapping, if any, lets the messages through. A message failing too many times, or that
+ * cannot be replayed anymore, is dropped and sent to the dead letter address, so it does not block the journal.
+ */
+class Spooler {
+
+  /**
+   * Encodes the spooled messages. The journal is local, so the default dictionary is used.
+   */
+  private static final TypedMessageCodec CODEC = new TypedMessageCodec();
+
+  /**
+   * The outcome of the replay of a message.
+   */
+  enum Outcome {
+    /**
+     * The endpoint has processed the message.
+     */
+    REPLAYED,
+    /**
+     * The endpoint has failed the message, which is retried later.
+     */
+    FAILED,
+    /**
+     * The message can never be replayed, it is dropped without being counted by the circuit breaker.
+     */
+    INVALID
+  }
+
+  /**
+   * Sends the replayed messages to the Camel endpoint.
+   */
+  @FunctionalInterface
+  interface Replayer {
+
+    /**
+     * Sends a replayed message.
+     *
+     * @param uri     the URI of the endpoint, {@code null} if the mapping has no URI template
+     * @param message the message
+     * @param done    called with the outcome
+     */
+    void replay(String uri, TypedMessage message, Handler<Outcome> done);
+  }
+
+  private final Vertx vertx;
+  private final SpoolOptions options;
+  private final boolean headersCopy;
+  private final Admission admission;
+  private final Replayer replayer;
+
+  private final Spool spool;
+  private final TokenBucket replayBucket;
+  private final Context replayContext;
+  private final AtomicBoolean replaying = new AtomicBoolean();
+  private final AtomicInteger appending = new AtomicInteger();
+  // The number of records in the journal, read without taking the lock of the spool.
+  private final AtomicInteger spooled = new AtomicInteger();
+  private final LongAdder dropped = new LongAdder();
+  // Only used by the replay, which handles one message at a time.
+  private volatile int replayAttempts;
+  private volatile boolean closed;
+
+  /**
+   * Opens the spool of the given mapping. The messages left by a previous run are replayed.
+   *
+   * @param vertx     the Vert.x instance
+   * @param outbound  the mapping, with a spool
+   * @param admission the admission of the mapping, whose circuit breaker gates the replay
+   * @param replayer  sends the replayed messages
+   */
+  Spooler(Vertx vertx, OutboundMapping outbound, Admission admission, Replayer replayer) {
+    this.vertx = vertx;
+    this.options = outbound.getSpool();
+    this.headersCopy = outbound.isHeadersCopy();
+    this.admission = admission;
+    this.replayer = replayer;
+    this.spool = open(outbound);
+    this.replayBucket = new TokenBucket(options.getReplayRate(), 1);
+    this.replayContext = vertx.getOrCreateContext();
+    spooled.set(spool.size());
+    if (spooled.get() > 0) {
+      // Left by a previous run, replayed once the producers are started.
+      scheduleReplay(options.getRetryDelay());
+    }
+  }
+
+  private static Spool open(OutboundMapping outbound) {
+    SpoolOptions options = outbound.getSpool();
+    String name = outbound.getAddress() != null ? outbound.getAddress() : outbound.getAddressPrefix();
+    File file = new File(options.getDirectory(), name.replaceAll("[^A-Za-z0-9._-]", "_") + ".spool");
+    try {
+      Files.createDirectories(file.getParentFile().toPath());
+      return new Spool(file, options.getMaxSize());
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot open the spool " + file, e);
+    }
+  }
+
+  /**
+   * @return whether or not messages are spooled or being spooled, so the new messages must go after them
+   */
+  boolean isBusy() {
+    return spooled.get() > 0 || appending.get() > 0;
+  }
+
+  /**
+   * Appends a message to the spool. The record contains the URI of the endpoint (for mappings using a URI template),
+   * and the body and headers encoded with the {@link TypedMessageCodec}.
+   *
+   * @param message   the message
+   * @param uri       the URI of the endpoint of the message, {@code null} if the mapping has no URI template
+   * @param otherwise called if the message cannot be spooled, on the current context if any
+   */
+  void append(Message<Object> message, String uri, Runnable otherwise) {
+    Buffer record = Buffer.buffer();
+    try {
+      Map<String, Object> headers = new LinkedHashMap<>();
+      Object body = message.body();
+      if (headersCopy) {
+        MultiMapHelper.toMap(message.headers(), headers);
+      }
+      if (body instanceof TypedMessage) {
+        if (headersCopy) {
+          headers.putAll(((TypedMessage) body).headers());
+        }
+        body = ((TypedMessage) body).body();
+      }
+      byte[] bytes = uri == null ? new byte[0] : uri.getBytes(StandardCharsets.UTF_8);
+      record.appendInt(bytes.length).appendBytes(bytes);
+      CODEC.encodeToWire(record, new TypedMessage(body, headers));
+    } catch (RuntimeException e) {
+      // The body is not supported by the codec.
+      otherwise.run();
+      return;
+    }
+    Context current = Vertx.currentContext();
+    appending.incrementAndGet();
+    replayContext.executeBlocking(() -> {
+      boolean appended = spool.append(record);
+      if (appended) {
+        spooled.incrementAndGet();
+      }
+      return appended;
+    }).onComplete(appended -> {
+      appending.decrementAndGet();
+      if (appended.succeeded() && appended.result()) {
+        scheduleReplay(0);
+      } else if (current == null) {
+        otherwise.run();
+      } else {
+        current.runOnContext(v -> otherwise.run());
+      }
+    });
+  }
+
+  private void scheduleReplay(long delay) {
+    if (replaying.compareAndSet(false, true)) {
+      replayContext.runOnContext(v -> vertx.setTimer(Math.max(1, delay), id -> replayNext()));
+    }
+  }
+
+  /**
+   * Replays the first spooled message. Called on the replay context, one message at a time, so the order is kept.
+   */
+  private void replayNext() {
+    if (closed) {
+      replaying.set(false);
+      return;
+    }
+    replayContext.executeBlocking(spool::peek).onComplete(peeked -> {
+      Buffer record = peeked.result();
+      if (record == null) {
+        replaying.set(false);
+        // A message may have been spooled in the meantime.
+        if (!closed && spooled.get() > 0) {
+          scheduleReplay(0);
+        }
+        return;
+      }
+      if (!admission.tryAcquireCircuit()) {
+        vertx.setTimer(options.getRetryDelay(), id -> replayNext());
+        return;
+      }
+      long delay = replayBucket.reserve();
+      if (delay > 0) {
+        vertx.setTimer(delay, id -> replay(record));
+      } else {
+        replay(record);
+      }
+    });
+  }
+
+  private void replay(Buffer record) {
+    String uri;
+    TypedMessage message;
+    try {
+      int length = record.getInt(0);
+      uri = length == 0 ? null : record.getString(4, 4 + length, "UTF-8");
+      message = CODEC.decodeFromWire(4 + length, record);
+    } catch (RuntimeException e) {
+      // Corrupted record, skipped so it does not block the journal.
+      admission.cancelCircuit();
+      drop(null);
+      return;
+    }
+    long start = System.nanoTime();
+    replayer.replay(uri, message, outcome -> {
+      if (outcome == Outcome.INVALID) {
+        admission.cancelCircuit();
+        drop(message);
+        return;
+      }
+      boolean failed = outcome == Outcome.FAILED;
+      admission.recordCircuit(start, failed);
+      if (!failed) {
+        replayAttempts = 0;
+        removeReplayed();
+      } else if (++replayAttempts >= options.getMaxReplayAttempts()) {
+        // Failed too many times, dropped so it does not block the journal.
+        drop(message);
+      } else {
+        // Kept in the journal, and retried later.
+        replayContext.runOnContext(v -> vertx.setTimer(options.getRetryDelay(), id -> replayNext()));
+      }
+    });
+  }
+
+  /**
+   * Removes the first spooled message, which cannot be replayed, and sends it to the dead letter address if any.
+   *
+   * @param message the message, {@code null} if the record cannot be decoded
+   */
+  private void drop(TypedMessage message) {
+    replayAttempts = 0;
+    dropped.increment();
+    String address = options.getDeadLetterAddress();
+    if (address != null && message != null) {
+      vertx.eventBus().send(address, message);
+    }
+    removeReplayed();
+  }
+
+  /**
+   * Removes the first spooled message, on the replay context, and replays the next one.
+   */
+  private void removeReplayed() {
+    replayContext.executeBlocking(() -> {
+      spool.remove();
+      spooled.decrementAndGet();
+      return null;
+    }).onComplete(removed -> replayNext());
+  }
+
+  /**
+   * @return the number of spooled messages
+   */
+  int size() {
+    return spooled.get();
+  }
+
+  /**
+   * @return the number of messages dropped from the spool
+   */
+  long dropped() {
+    return dropped.sum();
+  }
+
+  /**
+   * Stops the replay and closes the journal.
+   */
+  void close() {
+    closed = true;
+    spool.close();
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.Endpoint;
+import org.apache.camel.Producer;
+import org.apache.camel.support.AsyncProcessorConverterHelper;
+import org.apache.camel.support.service.ServiceHelper;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Camel endpoint receiving the messages of an outbound mapping, with its producer.
+ * <p>
+ * The target counts the exchanges it is processing. Once retired, its producer is stopped when the last exchange
+ * completes, so the producers evicted from a cache are not stopped while in use.
+ */
+class Target {
+
+  private final Endpoint endpoint;
+  private final Producer producer;
+  private final AsyncProcessor processor;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private volatile boolean retired;
+
+  Target(Producer producer) {
+    this.endpoint = producer.getEndpoint();
+    this.producer = producer;
+    this.processor = AsyncProcessorConverterHelper.convert(producer);
+  }
+
+  Endpoint endpoint() {
+    return endpoint;
+  }
+
+  AsyncProcessor processor() {
+    return processor;
+  }
+
+  int inFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * Called before sending an exchange to the target.
+   */
+  void acquire() {
+    inFlight.incrementAndGet();
+  }
+
+  /**
+   * Called when the target has completed an exchange.
+   */
+  void release() {
+    if (inFlight.decrementAndGet() == 0 && retired) {
+      stop();
+    }
+  }
+
+  /**
+   * Retires the target: its producer is stopped once the exchanges in progress have completed.
+   */
+  void retire() {
+    retired = true;
+    if (inFlight.get() == 0) {
+      stop();
+    }
+  }
+
+  private void stop() {
+    // Stopping a stopped service is a no-op, so concurrent calls are harmless.
+    ServiceHelper.stopService(producer);
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.camel.OutboundMapping;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonArray;
+import org.apache.camel.CamelContext;
+
+/**
+ * The Camel endpoints receiving the messages of an outbound mapping: a single endpoint, several endpoints distributed
+ * by a {@link LoadBalancer}, or the endpoints computed from a {@link UriTemplate} and kept in an
+ * {@link EndpointCache}.
+ * <p>
+ * The targets are acquired before sending an exchange, and must be {@linkplain #finished(Target, boolean) finished}
+ * once it has completed.
+ */
+class Targets {
+
+  private final Target target;
+  private final LoadBalancer balancer;
+  private final UriTemplate template;
+  private final EndpointCache endpoints;
+  private final String prefix;
+  private final String uri;
+
+  private Targets(Target target, LoadBalancer balancer, UriTemplate template, EndpointCache endpoints,
+                  String prefix, String uri) {
+    this.target = target;
+    this.balancer = balancer;
+    this.template = template;
+    this.endpoints = endpoints;
+    this.prefix = prefix;
+    this.uri = uri;
+  }
+
+  /**
+   * Creates the targets of a mapping sending to a single endpoint.
+   *
+   * @param target   the target
+   * @param outbound the mapping
+   * @return the targets
+   */
+  static Targets single(Target target, OutboundMapping outbound) {
+    return new Targets(target, null, null, null, null, outbound.getUri());
+  }
+
+  /**
+   * Creates the targets of a mapping distributing the messages over several endpoints.
+   *
+   * @param balancer the load balancer
+   * @param outbound the mapping
+   * @return the targets
+   */
+  static Targets balanced(LoadBalancer balancer, OutboundMapping outbound) {
+    return new Targets(null, balancer, null, null, null, String.join(",", outbound.getUris()));
+  }
+
+  /**
+   * Creates the targets of a mapping using a URI template.
+   *
+   * @param vertx    the Vert.x instance, creating the producers
+   * @param camel    the Camel context resolving the endpoints
+   * @param outbound the mapping
+   * @return the targets
+   */
+  static Targets templated(Vertx vertx, CamelContext camel, OutboundMapping outbound) {
+    UriTemplate template = new UriTemplate(outbound.getUriTemplate());
+    return new Targets(null, null, template, new EndpointCache(vertx, camel, outbound.getEndpointCacheSize()),
+      outbound.getAddressPrefix(), template.toString());
+  }
+
+  /**
+   * @return the URI, the URIs or the URI template of the mapping
+   */
+  String uri() {
+    return uri;
+  }
+
+  /**
+   * @return whether or not the endpoint of each message is computed from a URI template
+   */
+  boolean isTemplated() {
+    return template != null;
+  }
+
+  /**
+   * Computes the URI of the endpoint of a message, for the mappings using a URI template.
+   *
+   * @param message the message
+   * @return the URI
+   * @throws IllegalArgumentException if the URI cannot be computed from the message
+   */
+  String resolve(Message<Object> message) {
+    String suffix = prefix == null ? null : message.address().substring(prefix.length());
+    return template.resolve(message, suffix);
+  }
+
+  /**
+   * Acquires the target of a message, for the mappings without URI template.
+   *
+   * @return the target
+   */
+  Target acquire() {
+    Target selected = balancer == null ? target : balancer.select();
+    selected.acquire();
+    return selected;
+  }
+
+  /**
+   * Acquires the target of a resolved URI, for the mappings using a URI template. Its producer may have to be created,
+   * on a worker thread.
+   *
+   * @param uri the URI
+   * @return a future completed with the target, or failed with an {@link IllegalArgumentException} if the endpoint
+   * cannot be resolved, or with the failure of the creation of the producer
+   */
+  Future<Target> acquire(String uri) {
+    return endpoints.acquire(uri);
+  }
+
+  /**
+   * Acquires the target receiving a message that has failed on the given target, with the
+   * {@link io.vertx.camel.LoadBalancing#FAILOVER} strategy.
+   *
+   * @param failed the target on which the message has failed
+   * @return the next target, {@code null} if the message must not be retried
+   */
+  Target next(Target failed) {
+    Target next = balancer == null ? null : balancer.next(failed);
+    if (next != null) {
+      next.acquire();
+    }
+    return next;
+  }
+
+  /**
+   * Called when a target has completed an exchange (even after the timeout, then counted as a failure).
+   *
+   * @param target the target
+   * @param failed whether or not the exchange has failed
+   */
+  void finished(Target target, boolean failed) {
+    if (balancer != null) {
+      balancer.record(target, failed);
+    }
+    target.release();
+  }
+
+  int size() {
+    return endpoints == null ? 1 : endpoints.size();
+  }
+
+  long evictions() {
+    return endpoints == null ? 0L : endpoints.evictions();
+  }
+
+  JsonArray metrics() {
+    return balancer == null ? null : balancer.metrics();
+  }
+
+  /**
+   * Stops the producers created from the URI template.
+   */
+  void close() {
+    if (endpoints != null) {
+      endpoints.close();
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.camel.CamelMapping;
+
+/**
+ * A token bucket rate limiter. The bucket is refilled continuously, and holds at most {@code burst} tokens.
+ * <p>
+ * A permit is always granted, but the caller may have to wait before using it: the tokens can go negative, so the
+ * waiting callers are served in order, at the configured rate.
+ */
+class TokenBucket {
+
+  private final double rate;
+  private final double burst;
+
+  private double tokens;
+  private long last;
+
+  /**
+   * Creates a new instance of bucket, initially full.
+   *
+   * @param permitsPerSecond the refill rate
+   * @param burst            the capacity of the bucket
+   */
+  TokenBucket(double permitsPerSecond, int burst) {
+    this.rate = permitsPerSecond / 1_000_000_000d;
+    this.burst = burst;
+    this.tokens = burst;
+    this.last = System.nanoTime();
+  }
+
+  /**
+   * Creates the bucket enforcing the rate limit of the given mapping.
+   *
+   * @param mapping the mapping
+   * @return the bucket, {@code null} if the mapping is not rate limited
+   */
+  static TokenBucket create(CamelMapping mapping) {
+    return mapping.getRateLimit() > 0 ? new TokenBucket(mapping.getRateLimit(), mapping.getRateLimitBurst()) : null;
+  }
+
+  /**
+   * Acquires a permit if one can be used immediately.
+   *
+   * @return {@code true} if the permit has been acquired, {@code false} otherwise (no permit is reserved)
+   */
+  synchronized boolean tryAcquire() {
+    refill();
+    if (tokens >= 1) {
+      tokens -= 1;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Reserves a permit.
+   *
+   * @return the time to wait in milliseconds before using the permit, {@code 0} if it can be used immediately
+   */
+  synchronized long reserve() {
+    refill();
+    tokens -= 1;
+    if (tokens >= 0) {
+      return 0;
+    }
+    // Rounded up, so the permit is available when the delay expires.
+    return Math.max(1, (long) Math.ceil(-tokens / rate / 1_000_000d));
+  }
+
+  private void refill() {
+    long now = System.nanoTime();
+    tokens = Math.min(burst, tokens + (now - last) * rate);
+    last = now;
+  }
+}
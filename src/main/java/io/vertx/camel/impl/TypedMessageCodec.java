@@ -0,0 +1,460 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.camel.CamelBridgeOptions;
+import io.vertx.camel.TypedMessage;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Event bus codec for {@link TypedMessage}.
+ * <p>
+ * Locally, the headers map is copied, as well as the mutable bodies and header values (JSON structures, buffers,
+ * byte arrays and dates).
+ * <p>
+ * On the wire, the message is written as: the length of the encoded message (4 bytes), a flag byte, and the payload,
+ * a sequence of tagged values: the body, the number of headers, and for each header its name and value. Lengths,
+ * integers and longs are written as variable-length integers. Header names found in the dictionary are written as
+ * their index in this dictionary. When the payload is larger than the compression threshold, it is deflated (only
+ * if this makes it smaller). The dictionary and the threshold must be the same on all the nodes of the cluster. The
+ * decompressed size announced by a compressed message is checked against a maximum before allocating it.
+ * <p>
+ * Header values that have no dedicated tag are written using their {@code toString} representation, as done for
+ * regular event bus headers. Bodies that have no dedicated tag cannot be sent over the wire.
+ */
+public class TypedMessageCodec implements MessageCodec<TypedMessage, TypedMessage> {
+
+  /**
+   * The name of the codec.
+   */
+  public static final String NAME = "camel-bridge-typed-message";
+
+  /**
+   * The header names always present at the beginning of the dictionary.
+   */
+  public static final List<String> DEFAULT_HEADER_DICTIONARY = Collections.unmodifiableList(Arrays.asList(
+    "breadcrumbId", "Content-Type", "Content-Length", "CamelRedelivered", "CamelRedeliveryCounter",
+    "CamelFileName", "CamelFileLength", "CamelFileLastModified", "CamelHttpMethod", "CamelHttpUri", "CamelHttpPath",
+    "CamelHttpQuery", "CamelHttpResponseCode", "CamelHttpResponseText", "JMSMessageID", "JMSCorrelationID",
+    "JMSDestination", "JMSReplyTo", "JMSTimestamp", "JMSType", "JMSDeliveryMode", "JMSExpiration", "JMSPriority",
+    "JMSRedelivered"));
+
+  private static final byte FLAG_COMPRESSED = 1;
+
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte BOOLEAN = 2;
+  private static final byte BYTE = 3;
+  private static final byte SHORT = 4;
+  private static final byte INT = 5;
+  private static final byte LONG = 6;
+  private static final byte FLOAT = 7;
+  private static final byte DOUBLE = 8;
+  private static final byte CHAR = 9;
+  private static final byte BYTES = 10;
+  private static final byte DATE = 11;
+  private static final byte BUFFER = 12;
+  private static final byte JSON_OBJECT = 13;
+  private static final byte JSON_ARRAY = 14;
+
+  private final List<String> dictionary;
+  private final Map<String, Integer> indexes = new HashMap<>();
+  private final int compressionThreshold;
+  private final int maxDecompressedSize;
+
+  /**
+   * Creates a new instance of {@link TypedMessageCodec} using the default dictionary, without compression.
+   */
+  public TypedMessageCodec() {
+    this(Collections.emptyList(), -1);
+  }
+
+  /**
+   * Creates a new instance of {@link TypedMessageCodec}, decompressing the messages up to the
+   * {@linkplain CamelBridgeOptions#DEFAULT_MAX_DECOMPRESSED_SIZE default maximum size}.
+   *
+   * @param headerNames          the header names appended to the {@link #DEFAULT_HEADER_DICTIONARY default
+   *                             dictionary}, must not be {@code null}
+   * @param compressionThreshold the size of the payload (in bytes) above which it is compressed, negative to disable
+   *                             the compression
+   */
+  public TypedMessageCodec(List<String> headerNames, int compressionThreshold) {
+    this(headerNames, compressionThreshold, CamelBridgeOptions.DEFAULT_MAX_DECOMPRESSED_SIZE);
+  }
+
+  /**
+   * Creates a new instance of {@link TypedMessageCodec}.
+   *
+   * @param headerNames          the header names appended to the {@link #DEFAULT_HEADER_DICTIONARY default
+   *                             dictionary}, must not be {@code null}
+   * @param compressionThreshold the size of the payload (in bytes) above which it is compressed, negative to disable
+   *                             the compression
+   * @param maxDecompressedSize  the maximum size (in bytes) of a compressed payload once decompressed, larger
+   *                             messages are rejected
+   */
+  public TypedMessageCodec(List<String> headerNames, int compressionThreshold, int maxDecompressedSize) {
+    List<String> names = new ArrayList<>(DEFAULT_HEADER_DICTIONARY);
+    names.addAll(headerNames);
+    this.dictionary = names;
+    for (int i = 0; i < names.size(); i++) {
+      indexes.putIfAbsent(names.get(i), i);
+    }
+    this.compressionThreshold = compressionThreshold;
+    this.maxDecompressedSize = maxDecompressedSize;
+  }
+
+  /**
+   * Checks whether the given codec encodes and decodes the messages as this codec.
+   *
+   * @param other the other codec
+   * @return {@code true} if both codecs use the same dictionary, compression threshold and maximum decompressed size
+   */
+  boolean hasSameOptions(TypedMessageCodec other) {
+    return dictionary.equals(other.dictionary) && compressionThreshold == other.compressionThreshold
+      && maxDecompressedSize == other.maxDecompressedSize;
+  }
+
+  @Override
+  public void encodeToWire(Buffer buffer, TypedMessage msg) {
+    Buffer payload = Buffer.buffer();
+    if (!writeValue(payload, msg.body())) {
+      throw new IllegalArgumentException("Cannot encode a body of type " + msg.body().getClass().getName());
+    }
+    writeVarInt(payload, msg.headers().size());
+    for (Map.Entry<String, Object> entry : msg.headers().entrySet()) {
+      Integer index = indexes.get(entry.getKey());
+      if (index != null) {
+        writeVarInt(payload, index + 1);
+      } else {
+        // 0 means that the name follows.
+        writeVarInt(payload, 0);
+        writeString(payload, entry.getKey());
+      }
+      if (!writeValue(payload, entry.getValue())) {
+        writeString(payload.appendByte(STRING), entry.getValue().toString());
+      }
+    }
+
+    if (compressionThreshold >= 0 && payload.length() > compressionThreshold) {
+      Buffer compressed = compress(payload);
+      if (compressed.length() < payload.length()) {
+        buffer.appendInt(compressed.length() + 1).appendByte(FLAG_COMPRESSED).appendBuffer(compressed);
+        return;
+      }
+    }
+    buffer.appendInt(payload.length() + 1).appendByte((byte) 0).appendBuffer(payload);
+  }
+
+  @Override
+  public TypedMessage decodeFromWire(int pos, Buffer buffer) {
+    int length = buffer.getInt(pos);
+    byte flags = buffer.getByte(pos + 4);
+    Reader reader;
+    if ((flags & FLAG_COMPRESSED) != 0) {
+      reader = new Reader(decompress(buffer, pos + 5, pos + 4 + length), 0);
+    } else {
+      reader = new Reader(buffer, pos + 5);
+    }
+
+    Object body = reader.readValue();
+    int size = reader.readVarInt();
+    Map<String, Object> headers = new LinkedHashMap<>(Math.max(16, size * 2));
+    for (int i = 0; i < size; i++) {
+      int ref = reader.readVarInt();
+      String name = ref == 0 ? reader.readString() : name(ref - 1);
+      headers.put(name, reader.readValue());
+    }
+    return new TypedMessage(body, headers);
+  }
+
+  private String name(int index) {
+    if (index < 0 || index >= dictionary.size()) {
+      // Read from the wire, the sender uses a larger dictionary.
+      throw new IllegalStateException("Unknown header name index " + index + ", the dictionary contains "
+        + dictionary.size() + " names: all the nodes must use the same header dictionary");
+    }
+    return dictionary.get(index);
+  }
+
+  @Override
+  public TypedMessage transform(TypedMessage msg) {
+    Map<String, Object> headers = new LinkedHashMap<>(msg.headers());
+    headers.replaceAll((name, value) -> copy(value));
+    return new TypedMessage(copy(msg.body()), headers);
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public byte systemCodecID() {
+    return -1;
+  }
+
+  private static Object copy(Object value) {
+    if (value instanceof JsonObject) {
+      return ((JsonObject) value).copy();
+    } else if (value instanceof JsonArray) {
+      return ((JsonArray) value).copy();
+    } else if (value instanceof Buffer) {
+      return ((Buffer) value).copy();
+    } else if (value instanceof byte[]) {
+      return ((byte[]) value).clone();
+    } else if (value instanceof Date) {
+      return ((Date) value).clone();
+    }
+    return value;
+  }
+
+  private static Buffer compress(Buffer payload) {
+    byte[] input = payload.getBytes();
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(input);
+      deflater.finish();
+      Buffer compressed = Buffer.buffer(input.length / 2 + 16);
+      writeVarInt(compressed, input.length);
+      byte[] chunk = new byte[Math.min(input.length, 8192)];
+      while (!deflater.finished()) {
+        int count = deflater.deflate(chunk);
+        compressed.appendBytes(chunk, 0, count);
+      }
+      return compressed;
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private Buffer decompress(Buffer buffer, int start, int end) {
+    Reader reader = new Reader(buffer, start);
+    int size = reader.readVarInt();
+    if (size < 0 || size > maxDecompressedSize) {
+      // Read from the wire, checked before the allocation.
+      throw new IllegalStateException("Invalid decompressed size " + size + ", the maximum is " + maxDecompressedSize);
+    }
+    byte[] output = new byte[size];
+    byte[] input = buffer.getBytes(reader.pos, end);
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(input);
+      int count = 0;
+      while (count < output.length && !inflater.finished()) {
+        int inflated = inflater.inflate(output, count, output.length - count);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        count += inflated;
+      }
+      if (count != output.length) {
+        throw new IllegalStateException("Truncated compressed message");
+      }
+      return Buffer.buffer(output);
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("Invalid compressed message", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /**
+   * Writes the given value, prefixed by its tag.
+   *
+   * @return {@code false} if the value type is not supported, nothing has been written in this case
+   */
+  private static boolean writeValue(Buffer buffer, Object value) {
+    if (value == null) {
+      buffer.appendByte(NULL);
+    } else if (value instanceof String) {
+      writeString(buffer.appendByte(STRING), (String) value);
+    } else if (value instanceof Boolean) {
+      buffer.appendByte(BOOLEAN).appendByte((byte) ((Boolean) value ? 1 : 0));
+    } else if (value instanceof Byte) {
+      buffer.appendByte(BYTE).appendByte((Byte) value);
+    } else if (value instanceof Short) {
+      buffer.appendByte(SHORT).appendShort((Short) value);
+    } else if (value instanceof Integer) {
+      int i = (Integer) value;
+      writeVarInt(buffer.appendByte(INT), (i << 1) ^ (i >> 31));
+    } else if (value instanceof Long) {
+      long l = (Long) value;
+      writeVarLong(buffer.appendByte(LONG), (l << 1) ^ (l >> 63));
+    } else if (value instanceof Float) {
+      buffer.appendByte(FLOAT).appendFloat((Float) value);
+    } else if (value instanceof Double) {
+      buffer.appendByte(DOUBLE).appendDouble((Double) value);
+    } else if (value instanceof Character) {
+      buffer.appendByte(CHAR).appendShort((short) ((Character) value).charValue());
+    } else if (value instanceof byte[]) {
+      byte[] bytes = (byte[]) value;
+      writeVarInt(buffer.appendByte(BYTES), bytes.length);
+      buffer.appendBytes(bytes);
+    } else if (value instanceof Date) {
+      writeVarLong(buffer.appendByte(DATE), ((Date) value).getTime());
+    } else if (value instanceof Buffer) {
+      writeBuffer(buffer.appendByte(BUFFER), (Buffer) value);
+    } else if (value instanceof JsonObject) {
+      writeBuffer(buffer.appendByte(JSON_OBJECT), ((JsonObject) value).toBuffer());
+    } else if (value instanceof JsonArray) {
+      writeBuffer(buffer.appendByte(JSON_ARRAY), ((JsonArray) value).toBuffer());
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  private static void writeString(Buffer buffer, String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(buffer, bytes.length);
+    buffer.appendBytes(bytes);
+  }
+
+  private static void writeBuffer(Buffer buffer, Buffer value) {
+    writeVarInt(buffer, value.length());
+    buffer.appendBuffer(value);
+  }
+
+  private static void writeVarInt(Buffer buffer, int value) {
+    while ((value & ~0x7F) != 0) {
+      buffer.appendByte((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.appendByte((byte) value);
+  }
+
+  private static void writeVarLong(Buffer buffer, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.appendByte((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.appendByte((byte) value);
+  }
+
+  /**
+   * Reads the values written by {@link #writeValue(Buffer, Object)}, keeping track of the position in the buffer.
+   */
+  private static final class Reader {
+
+    private final Buffer buffer;
+    private int pos;
+
+    private Reader(Buffer buffer, int pos) {
+      this.buffer = buffer;
+      this.pos = pos;
+    }
+
+    private int readVarInt() {
+      return (int) readVarLong();
+    }
+
+    private long readVarLong() {
+      long value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = buffer.getByte(pos++);
+        value |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+
+    private String readString() {
+      int length = readVarInt();
+      String value = buffer.getString(pos, pos + length, "UTF-8");
+      pos += length;
+      return value;
+    }
+
+    private Buffer readBuffer() {
+      int length = readVarInt();
+      Buffer value = buffer.getBuffer(pos, pos + length);
+      pos += length;
+      return value;
+    }
+
+    private Object readValue() {
+      byte tag = buffer.getByte(pos++);
+      switch (tag) {
+        case NULL:
+          return null;
+        case STRING:
+          return readString();
+        case BOOLEAN:
+          return buffer.getByte(pos++) != 0;
+        case BYTE:
+          return buffer.getByte(pos++);
+        case SHORT: {
+          short value = buffer.getShort(pos);
+          pos += 2;
+          return value;
+        }
+        case INT: {
+          int value = readVarInt();
+          return (value >>> 1) ^ -(value & 1);
+        }
+        case LONG: {
+          long value = readVarLong();
+          return (value >>> 1) ^ -(value & 1);
+        }
+        case FLOAT: {
+          float value = buffer.getFloat(pos);
+          pos += 4;
+          return value;
+        }
+        case DOUBLE: {
+          double value = buffer.getDouble(pos);
+          pos += 8;
+          return value;
+        }
+        case CHAR: {
+          char value = (char) buffer.getShort(pos);
+          pos += 2;
+          return value;
+        }
+        case BYTES:
+          return readBuffer().getBytes();
+        case DATE:
+          return new Date(readVarLong());
+        case BUFFER:
+          return readBuffer();
+        case JSON_OBJECT:
+          return new JsonObject(readBuffer());
+        case JSON_ARRAY:
+          return new JsonArray(readBuffer());
+        default:
+          throw new IllegalStateException("Unknown value tag " + tag);
+      }
+    }
+  }
+}
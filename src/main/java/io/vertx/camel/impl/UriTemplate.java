@@ -0,0 +1,163 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.camel.TypedMessage;
+import io.vertx.core.eventbus.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Camel endpoint URI containing {@code {header}} placeholders, replaced by the values of the headers of the
+ * event bus messages. For prefix mappings, the {@code {suffix}} placeholder is replaced by the part of the address
+ * following the prefix.
+ * <p>
+ * The template is parsed once. Camel property placeholders ({@code {{property}}}) are kept as-is, and resolved by
+ * Camel when the endpoint is created. The values are inserted without encoding, so the values containing a URI
+ * delimiter ({@code ?&=:/#}), a backslash, a brace or a {@code %} (which could encode a delimiter once decoded by the
+ * component) are rejected: a header cannot change the endpoint or its options. The empty values and the values made
+ * of dots only are rejected too, so a header cannot designate a parent directory in a file path.
+ */
+class UriTemplate {
+
+  /**
+   * The placeholder replaced by the end of the address, for prefix mappings.
+   */
+  static final String SUFFIX = "suffix";
+
+  private static final String FORBIDDEN = "?&=:/\\#{}%";
+
+  private final String template;
+  // The literal parts are Strings, the placeholders are Header instances.
+  private final List<Object> parts = new ArrayList<>();
+
+  /**
+   * Parses the given template.
+   *
+   * @param template the template
+   * @throws IllegalArgumentException if the template is invalid
+   */
+  UriTemplate(String template) {
+    this.template = template;
+    StringBuilder literal = new StringBuilder();
+    int i = 0;
+    while (i < template.length()) {
+      char c = template.charAt(i);
+      if (c != '{') {
+        literal.append(c);
+        i++;
+      } else if (template.startsWith("{{", i)) {
+        int end = template.indexOf("}}", i);
+        if (end < 0) {
+          throw new IllegalArgumentException("Invalid URI template, unclosed property placeholder: " + template);
+        }
+        literal.append(template, i, end + 2);
+        i = end + 2;
+      } else {
+        int end = template.indexOf('}', i);
+        if (end <= i + 1) {
+          throw new IllegalArgumentException("Invalid URI template, unclosed or empty placeholder: " + template);
+        }
+        if (literal.length() > 0) {
+          parts.add(literal.toString());
+          literal.setLength(0);
+        }
+        parts.add(new Header(template.substring(i + 1, end)));
+        i = end + 1;
+      }
+    }
+    if (literal.length() > 0) {
+      parts.add(literal.toString());
+    }
+  }
+
+  /**
+   * Computes the URI for the given message.
+   *
+   * @param message the message
+   * @return the URI
+   * @throws IllegalArgumentException if a header used by the template is missing or has an invalid value
+   */
+  String resolve(Message<Object> message) {
+    return resolve(message, null);
+  }
+
+  /**
+   * Computes the URI for the given message, sent to an address matching a prefix mapping.
+   *
+   * @param message the message
+   * @param suffix  the part of the address following the prefix, replacing the {@code {suffix}} placeholder,
+   *                {@code null} if the message was not sent to a prefix mapping
+   * @return the URI
+   * @throws IllegalArgumentException if a header used by the template is missing, or if a value is invalid
+   */
+  String resolve(Message<Object> message, String suffix) {
+    StringBuilder uri = new StringBuilder(template.length() + 16);
+    for (Object part : parts) {
+      if (part instanceof Header) {
+        Header header = (Header) part;
+        Object value = suffix != null && SUFFIX.equals(header.name) ? suffix : header.value(message);
+        uri.append(check(header.name, value.toString()));
+      } else {
+        uri.append((String) part);
+      }
+    }
+    return uri.toString();
+  }
+
+  private static String check(String name, String value) {
+    boolean dots = true;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (FORBIDDEN.indexOf(c) >= 0) {
+        throw new IllegalArgumentException("Invalid value " + value + " for the placeholder " + name
+          + " of the Camel endpoint URI, it must not contain any of " + FORBIDDEN);
+      }
+      dots &= c == '.';
+    }
+    if (dots) {
+      // Empty, or a relative path segment such as "..".
+      throw new IllegalArgumentException("Invalid value " + value + " for the placeholder " + name
+        + " of the Camel endpoint URI, it must not be empty or only contain dots");
+    }
+    return value;
+  }
+
+  @Override
+  public String toString() {
+    return template;
+  }
+
+  private static final class Header {
+    private final String name;
+
+    private Header(String name) {
+      this.name = name;
+    }
+
+    private Object value(Message<Object> message) {
+      Object value = message.headers().get(name);
+      if (value == null && message.body() instanceof TypedMessage) {
+        value = ((TypedMessage) message.body()).header(name);
+      }
+      if (value == null) {
+        throw new IllegalArgumentException("Missing header " + name + " to build the Camel endpoint URI");
+      }
+      return value;
+    }
+  }
+}
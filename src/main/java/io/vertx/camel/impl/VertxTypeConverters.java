@@ -0,0 +1,152 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.internal.buffer.BufferInternal;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.apache.camel.Exchange;
+import org.apache.camel.TypeConversionException;
+import org.apache.camel.TypeConverter;
+import org.apache.camel.spi.BulkTypeConverters;
+import org.apache.camel.spi.TypeConverterRegistry;
+import org.apache.camel.support.TypeConverterSupport;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Camel type converters for the Vert.x types: {@link JsonObject}, {@link JsonArray} and {@link Buffer}. Without them,
+ * Camel falls back to its generic converters, often going through a {@link String}.
+ * <p>
+ * Conversions avoid copying the content when the target type can share it (maps, lists, {@link ByteBuffer} and
+ * {@link InputStream} views on a buffer, buffers wrapping a byte array). The JSON structures wrap the given
+ * collections, and the collections returned for a JSON structure are its content: a change made to one side after
+ * the conversion is visible on the other side.
+ */
+class VertxTypeConverters {
+
+  private VertxTypeConverters() {
+    // Avoid direct instantiation.
+  }
+
+  /**
+   * Registers the converters in the given registry.
+   *
+   * @param registry the registry of the Camel context used by the bridge, must not be {@code null}
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  static void register(TypeConverterRegistry registry) {
+    // JSON structures
+    registry.addBulkTypeConverters(new JsonStructures());
+    add(registry, Map.class, JsonObject.class, (map, exchange) -> new JsonObject(map));
+    add(registry, List.class, JsonArray.class, (list, exchange) -> new JsonArray(list));
+
+    // Buffers: Camel only looks at the direct interfaces of the value class, so the internal interface is needed too
+    for (Class<? extends Buffer> type : Arrays.asList(Buffer.class, BufferInternal.class)) {
+      add(registry, type, byte[].class, (buffer, exchange) -> buffer.getBytes());
+      add(registry, type, ByteBuffer.class, (buffer, exchange) -> ((BufferInternal) buffer).getByteBuf().nioBuffer());
+      add(registry, type, InputStream.class,
+        (buffer, exchange) -> new ByteBufInputStream(((BufferInternal) buffer).getByteBuf()));
+      add(registry, type, String.class, (buffer, exchange) -> {
+        String charset = charset(exchange);
+        return charset == null ? buffer.toString() : buffer.toString(charset);
+      });
+    }
+    add(registry, byte[].class, Buffer.class,
+      (bytes, exchange) -> BufferInternal.buffer(Unpooled.wrappedBuffer(bytes)));
+    add(registry, ByteBuffer.class, Buffer.class,
+      (bytes, exchange) -> BufferInternal.buffer(Unpooled.wrappedBuffer(bytes)));
+    add(registry, InputStream.class, Buffer.class,
+      (stream, exchange) -> BufferInternal.buffer(Unpooled.wrappedBuffer(stream.readAllBytes())));
+    add(registry, String.class, Buffer.class, (string, exchange) -> {
+      String charset = charset(exchange);
+      return charset == null ? Buffer.buffer(string) : Buffer.buffer(string, charset);
+    });
+
+    // Hawtbuf buffers (used by the STOMP component) are copied, as the underlying array may be reused.
+    add(registry, org.fusesource.hawtbuf.Buffer.class, Buffer.class,
+      (buffer, exchange) -> Buffer.buffer(buffer.toByteArray()));
+  }
+
+  private static String charset(Exchange exchange) {
+    return exchange == null ? null : exchange.getProperty(Exchange.CHARSET_NAME, String.class);
+  }
+
+  private static <F, T> void add(TypeConverterRegistry registry, Class<F> from, Class<T> to,
+                                 Conversion<? super F, T> conversion) {
+    registry.addTypeConverter(to, from, new TypeConverterSupport() {
+      @Override
+      @SuppressWarnings("unchecked")
+      public <R> R convertTo(Class<R> type, Exchange exchange, Object value) throws TypeConversionException {
+        try {
+          return (R) conversion.convert(from.cast(value), exchange);
+        } catch (Exception e) {
+          throw new TypeConversionException(value, type, e);
+        }
+      }
+    });
+  }
+
+  /**
+   * The conversions of the JSON structures to their content. Camel tries its bulk converters before the registered
+   * converters, and its {@link Iterable} to {@link List} bulk converter would copy a {@link JsonArray}, so these
+   * conversions are a bulk converter tried first.
+   */
+  private static final class JsonStructures implements BulkTypeConverters {
+
+    @Override
+    public TypeConverter lookup(Class<?> to, Class<?> from) {
+      if (to == Map.class && JsonObject.class.isAssignableFrom(from)
+        || to == List.class && JsonArray.class.isAssignableFrom(from)) {
+        return this;
+      }
+      return null;
+    }
+
+    @Override
+    public <T> T convertTo(Class<?> from, Class<T> to, Exchange exchange, Object value) {
+      if (to == Map.class && value instanceof JsonObject) {
+        return to.cast(((JsonObject) value).getMap());
+      }
+      if (to == List.class && value instanceof JsonArray) {
+        return to.cast(((JsonArray) value).getList());
+      }
+      return null;
+    }
+
+    @Override
+    public int size() {
+      return 2;
+    }
+
+    @Override
+    public int getOrder() {
+      return HIGHEST;
+    }
+  }
+
+  @FunctionalInterface
+  private interface Conversion<F, T> {
+    T convert(F value, Exchange exchange) throws Exception;
+  }
+}
@@ -15,6 +15,7 @@
  */
 package io.vertx.camel;
 
+import io.vertx.camel.impl.TypedMessageCodec;
 import io.vertx.core.Vertx;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
@@ -24,7 +25,10 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Collections;
+
 import static io.vertx.camel.InboundMapping.fromCamel;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * Check start-stop sequences.
@@ -73,4 +77,37 @@ public class BridgeStartStopTest {
     BridgeHelper.stopBlocking(bridge);
   }
 
+  @Test
+  public void testBridgesShareTheCodecs() {
+    CamelBridge first = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+      .setHeaderDictionary(Collections.singletonList("tenant")));
+    CamelBridge second = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+      .setHeaderDictionary(Collections.singletonList("tenant")));
+
+    BridgeHelper.stopBlocking(first);
+    // Still used by the second bridge.
+    assertThatThrownBy(() -> vertx.eventBus().registerCodec(new TypedMessageCodec()))
+      .isInstanceOf(IllegalStateException.class);
+
+    BridgeHelper.stopBlocking(second);
+    vertx.eventBus().registerCodec(new TypedMessageCodec());
+    vertx.eventBus().unregisterCodec(TypedMessageCodec.NAME);
+  }
+
+  @Test
+  public void testBridgesWithDifferentCodecOptions() {
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+      .setHeaderDictionary(Collections.singletonList("tenant")));
+
+    assertThatThrownBy(() -> CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+      .setHeaderDictionary(Collections.singletonList("region"))))
+      .isInstanceOf(IllegalStateException.class);
+
+    // Once the first bridge is stopped, the codec can be configured differently.
+    BridgeHelper.stopBlocking(bridge);
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+      .setHeaderDictionary(Collections.singletonList("region")));
+    BridgeHelper.stopBlocking(bridge);
+  }
+
 }
@@ -18,6 +18,7 @@ package io.vertx.camel;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.ext.stomp.StompClient;
 import io.vertx.ext.stomp.StompClientConnection;
 import io.vertx.ext.stomp.StompServer;
@@ -25,11 +26,13 @@ import io.vertx.ext.stomp.StompServerHandler;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.apache.camel.AsyncProducer;
 import org.apache.camel.Endpoint;
 import org.apache.camel.Exchange;
 import org.apache.camel.ExtendedExchange;
 import org.apache.camel.Message;
 import org.apache.camel.ProducerTemplate;
+import org.apache.camel.component.seda.SedaEndpoint;
 import org.apache.camel.impl.DefaultCamelContext;
 import org.apache.camel.spi.Synchronization;
 import org.apache.camel.support.SynchronizationAdapter;
@@ -39,7 +42,13 @@ import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.ByteArrayInputStream;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static io.vertx.camel.InboundMapping.fromCamel;
@@ -150,6 +159,162 @@ public class InboundEndpointTest {
   }
 
 
+  @Test
+  public void testWithDirectEndpointAndPassThroughCodec(TestContext context) throws Exception {
+    Async async = context.async();
+    Endpoint endpoint = camel.getEndpoint("direct:foo");
+    Person person = new Person().setName("bob");
+
+    // No codec registered for Person, the object is handed as it is.
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addInboundMapping(fromCamel("direct:foo").toVertx("test").withPassThroughCodec()));
+
+    vertx.eventBus().<Person>consumer("test", message -> {
+      context.assertTrue(message.body() == person);
+      async.complete();
+    });
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    ProducerTemplate producer = camel.createProducerTemplate();
+    producer.asyncSendBody(endpoint, person);
+  }
+
+  @Test
+  public void testWithDirectEndpointAndRoutes(TestContext context) throws Exception {
+    Async async = context.async(3);
+    Endpoint endpoint = camel.getEndpoint("direct:foo");
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addInboundMapping(fromCamel("direct:foo").toVertx("orders.other")
+            .setRoutingHeader("region").addRoute("eu", "orders.eu").addRoute("us", "orders.us")));
+
+    vertx.eventBus().consumer("orders.eu", message -> {
+      context.assertEquals("eu-order", message.body());
+      async.countDown();
+    });
+    vertx.eventBus().consumer("orders.us", message -> {
+      context.assertEquals("us-order", message.body());
+      async.countDown();
+    });
+    vertx.eventBus().consumer("orders.other", message -> {
+      context.assertEquals("other-order", message.body());
+      async.countDown();
+    });
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    ProducerTemplate producer = camel.createProducerTemplate();
+    producer.sendBodyAndHeader(endpoint, "eu-order", "region", "eu");
+    producer.sendBodyAndHeader(endpoint, "us-order", "region", "us");
+    producer.sendBodyAndHeader(endpoint, "other-order", "region", "asia");
+  }
+
+  @Test
+  public void testWithDirectEndpointAndStreaming(TestContext context) throws Exception {
+    Endpoint endpoint = camel.getEndpoint("direct:foo");
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addInboundMapping(fromCamel("direct:foo").toVertx("test").setStreaming(true).setChunkSize(5)));
+
+    Buffer received = Buffer.buffer();
+    vertx.eventBus().<Buffer>consumer("test", message -> {
+      context.assertEquals(Integer.toString(received.length() / 5),
+          message.headers().get(InboundMapping.STREAM_SEQUENCE_HEADER));
+      received.appendBuffer(message.body());
+      // The next chunk is only sent once this one is acknowledged.
+      boolean end = Boolean.parseBoolean(message.headers().get(InboundMapping.STREAM_END_HEADER));
+      message.reply(end ? "done" : "ack");
+    });
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    ProducerTemplate producer = camel.createProducerTemplate();
+    Object reply = producer.requestBody(endpoint, new ByteArrayInputStream("hello world!".getBytes()));
+    context.assertEquals("done", reply);
+    context.assertEquals("hello world!", received.toString());
+  }
+
+  @Test
+  public void testReadStream(TestContext context) throws Exception {
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    List<Object> received = new CopyOnWriteArrayList<>();
+    ReadStream<Object> stream = bridge.readStream("seda:foo");
+    stream.handler(received::add);
+    SedaEndpoint endpoint = camel.getEndpoint("seda:foo", SedaEndpoint.class);
+    // The seda consumers are removed from their endpoint while they are suspended.
+    await().atMost(DEFAULT_TIMEOUT).until(() -> !endpoint.getConsumers().isEmpty());
+
+    ProducerTemplate producer = camel.createProducerTemplate();
+    producer.sendBody("seda:foo", "a");
+    await().atMost(DEFAULT_TIMEOUT).until(() -> received.size() == 1);
+
+    stream.pause();
+    await().atMost(DEFAULT_TIMEOUT).until(() -> endpoint.getConsumers().isEmpty());
+    for (String body : Arrays.asList("b", "c", "d", "e")) {
+      producer.sendBody("seda:foo", body);
+    }
+    // A poll started before the suspension may still take one exchange, which is held, the others stay in the queue
+    // of the endpoint.
+    await().atMost(DEFAULT_TIMEOUT).until(() -> endpoint.getCurrentQueueSize() >= 3);
+    Thread.sleep(100);
+    context.assertEquals(1, received.size());
+
+    // Nothing else is emitted until more items are requested.
+    stream.fetch(1);
+    await().atMost(DEFAULT_TIMEOUT).until(() -> received.size() == 2);
+    Thread.sleep(100);
+    context.assertEquals(2, received.size());
+
+    stream.resume();
+    await().atMost(DEFAULT_TIMEOUT).until(() -> received.size() == 5);
+    context.assertEquals(Arrays.asList("a", "b", "c", "d", "e"), received);
+    context.assertEquals(0, endpoint.getCurrentQueueSize());
+  }
+
+  @Test
+  public void testRateLimitQueueIsBounded(TestContext context) throws Exception {
+    Endpoint endpoint = camel.getEndpoint("direct:foo");
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addInboundMapping(fromCamel("direct:foo").toVertx("test").setRateLimit(1, 1).setMaxDelayed(1)));
+
+    List<Object> received = new CopyOnWriteArrayList<>();
+    vertx.eventBus().consumer("test", message -> received.add(message.body()));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    AsyncProducer producer = endpoint.createAsyncProducer();
+    producer.start();
+    Async async = context.async(2);
+    // The first exchange is sent immediately, the second is delayed, and the third is rejected.
+    List<Exchange> exchanges = new ArrayList<>();
+    for (String body : Arrays.asList("a", "b", "c")) {
+      Exchange exchange = endpoint.createExchange();
+      exchange.getIn().setBody(body);
+      exchanges.add(exchange);
+      producer.process(exchange, doneSync -> {
+        if (exchange.getException() == null) {
+          async.countDown();
+        }
+      });
+    }
+    context.assertTrue(exchanges.get(2).getException() instanceof RejectedExecutionException);
+    async.awaitSuccess();
+    context.assertNull(exchanges.get(1).getException());
+    await().atMost(DEFAULT_TIMEOUT).until(() -> received.size() == 2);
+    context.assertEquals(Arrays.asList("a", "b"), received);
+    producer.stop();
+  }
+
   @Test
   public void testWithDirectEndpointWithHeaderCopy(TestContext context) throws Exception {
     Async async = context.async();
@@ -175,6 +340,34 @@ public class InboundEndpointTest {
     });
   }
 
+  @Test
+  public void testWithDirectEndpointWithTypedHeaders(TestContext context) throws Exception {
+    Async async = context.async();
+    Endpoint endpoint = camel.getEndpoint("direct:foo");
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addInboundMapping(fromCamel("direct:foo").toVertx("test").setTypedHeaders(true)));
+
+    vertx.eventBus().<TypedMessage>consumer("test", message -> {
+      context.assertEquals("hello", message.body().body());
+      context.assertEquals(42, message.body().header("count"));
+      context.assertTrue(message.body().header("bytes") instanceof byte[]);
+      context.assertNull(message.headers().get("count"));
+      async.complete();
+    });
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    ProducerTemplate producer = camel.createProducerTemplate();
+    producer.asyncSend(endpoint, exchange -> {
+      Message message = exchange.getIn();
+      message.setBody("hello");
+      message.setHeader("count", 42);
+      message.setHeader("bytes", new byte[]{1, 2, 3});
+    });
+  }
+
   @Test
   public void testWithDirectEndpointWithoutHeaderCopy(TestContext context) throws Exception {
     Async async = context.async();
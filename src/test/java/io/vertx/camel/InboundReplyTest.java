@@ -16,9 +16,12 @@
 package io.vertx.camel;
 
 import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 import org.apache.camel.Endpoint;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExchangeTimedOutException;
 import org.apache.camel.ProducerTemplate;
 import org.apache.camel.impl.DefaultCamelContext;
 import org.junit.After;
@@ -75,6 +78,47 @@ public class InboundReplyTest {
     assertThat(response).isEqualTo("How are you ?");
   }
 
+  @Test
+  public void testReplyInLightweightMode() throws Exception {
+    Endpoint endpoint = camel.getEndpoint("direct:stuff");
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addInboundMapping(new InboundMapping().setAddress("test-reply").setEndpoint(endpoint).setLightweight(true)));
+
+    vertx.eventBus().consumer("test-reply", message -> {
+      message.reply("How are you ?", new DeliveryOptions().addHeader("reply-header", "value"));
+    });
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    ProducerTemplate template = camel.createProducerTemplate();
+    Exchange exchange = template.request(endpoint, ex -> ex.getIn().setBody("hello"));
+    assertThat(exchange.getMessage().getBody()).isEqualTo("How are you ?");
+    assertThat(exchange.getMessage().getHeader("reply-header")).isEqualTo("value");
+  }
+
+  @Test
+  public void testLostReplyIsReaped() throws Exception {
+    Endpoint endpoint = camel.getEndpoint("direct:stuff");
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .setMaxExchangeLifetime(300)
+        .addInboundMapping(new InboundMapping().setAddress("test-reply").setEndpoint(endpoint)));
+
+    vertx.eventBus().consumer("test-reply", message -> {
+      // Never reply.
+    });
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    ProducerTemplate template = camel.createProducerTemplate();
+    Exchange exchange = template.request(endpoint, ex -> ex.getIn().setBody("hello"));
+    assertThat(exchange.getException()).isInstanceOf(ExchangeTimedOutException.class);
+    assertThat(bridge.metrics().getLong("reapedExchanges")).isEqualTo(1L);
+  }
+
   @Test
   public void testReplyWithCustomType() throws Exception {
     Endpoint endpoint = camel.getEndpoint("direct:stuff");
@@ -15,25 +15,47 @@
  */
 package io.vertx.camel;
 
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.WorkerExecutor;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.WriteStream;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 import org.apache.camel.Exchange;
+import org.apache.camel.ExtendedCamelContext;
 import org.apache.camel.builder.RouteBuilder;
 import org.apache.camel.component.mock.MockEndpoint;
 import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.engine.PooledExchangeFactory;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.File;
+import java.nio.file.Files;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static io.vertx.camel.OutboundMapping.fromVertx;
@@ -130,6 +152,44 @@ public class OutboundEndpointTest {
   }
 
 
+  @Test
+  public void testWithMockWithBodyType() throws Exception {
+    MockEndpoint endpoint = (MockEndpoint) camel.getComponent("mock").createEndpoint("mock:foo");
+    camel.addEndpoint("output", endpoint);
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").toCamel("output").withBodyType(Map.class)));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    vertx.eventBus().send("test", new JsonObject().put("name", "bob"));
+
+    await().atMost(DEFAULT_TIMEOUT).until(() -> !endpoint.getExchanges().isEmpty());
+    Exchange exchange = endpoint.getExchanges().get(0);
+    assertThat(exchange.getIn().getBody()).isInstanceOf(Map.class);
+    assertThat(exchange.getIn().getBody(Map.class)).contains(entry("name", "bob"));
+  }
+
+  @Test
+  public void testWithMockWithoutBodyTypeKeepsTheBody() throws Exception {
+    MockEndpoint endpoint = (MockEndpoint) camel.getComponent("mock").createEndpoint("mock:foo");
+    camel.addEndpoint("output", endpoint);
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").toCamel("output")));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    // Only the inbound mappings convert the Hawtbuf buffers to Vert.x buffers when no body type is set.
+    org.fusesource.hawtbuf.Buffer body = new org.fusesource.hawtbuf.Buffer(getRandomBytes());
+    vertx.eventBus().send("test", body, new DeliveryOptions().setCodecName(InboundMapping.PASS_THROUGH_CODEC));
+
+    await().atMost(DEFAULT_TIMEOUT).until(() -> !endpoint.getExchanges().isEmpty());
+    assertThat(endpoint.getExchanges().get(0).getIn().getBody()).isSameAs(body);
+  }
+
   private byte[] getRandomBytes() {
     Random random = new Random();
     byte[] bytes = new byte[1024];
@@ -263,6 +323,845 @@ public class OutboundEndpointTest {
     });
   }
 
+  @Test
+  public void testReplyWithPooledExchanges(TestContext context) throws Exception {
+    camel.adapt(ExtendedCamelContext.class).setExchangeFactory(new PooledExchangeFactory());
+    Set<Exchange> exchanges = Collections.newSetFromMap(new IdentityHashMap<>());
+    List<String> fromEndpoints = new CopyOnWriteArrayList<>();
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:a")
+            .process(exchange -> {
+              exchanges.add(exchange);
+              fromEndpoints.add(exchange.getFromEndpoint().getEndpointUri());
+            })
+            .transform(simple("${body}-a"));
+        from("direct:b")
+            .process(exchange -> {
+              exchanges.add(exchange);
+              fromEndpoints.add(exchange.getFromEndpoint().getEndpointUri());
+            })
+            .transform(simple("${body}-b"));
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").addUri("direct:a").addUri("direct:b")
+            .setLoadBalancing(LoadBalancing.ROUND_ROBIN).setPooledExchanges(true)));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    // Sent one after the other, so the exchange released by a reply is reused by the next request.
+    for (int i = 0; i < 10; i++) {
+      String body = "hello-" + i;
+      String suffix = i % 2 == 0 ? "-a" : "-b";
+      Async async = context.async();
+      vertx.eventBus().request("test", body).onComplete(context.asyncAssertSuccess(reply -> {
+        context.assertEquals(body + suffix, reply.body());
+        async.complete();
+      }));
+      async.awaitSuccess();
+    }
+    assertThat(exchanges).hasSize(1);
+    assertThat(fromEndpoints).containsExactly("direct://a", "direct://b", "direct://a", "direct://b", "direct://a",
+      "direct://b", "direct://a", "direct://b", "direct://a", "direct://b");
+  }
+
+  @Test
+  public void testTimeoutWithBlocking(TestContext context) throws Exception {
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:start")
+            .delay(5000)
+            .transform(constant("too late"));
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").toCamel("direct:start").setBlocking(true).setTimeout(200)));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    Async async = context.async();
+    vertx.eventBus().request("test", "hello").onComplete(context.asyncAssertFailure(err -> {
+      context.assertTrue(err instanceof ReplyException);
+      context.assertEquals(ReplyFailure.TIMEOUT, ((ReplyException) err).failureType());
+      JsonObject metrics = bridge.metrics().getJsonArray("outbound").getJsonObject(0);
+      context.assertEquals(1L, metrics.getLong("timeouts"));
+      context.assertEquals(0, metrics.getInteger("inFlight"));
+      async.complete();
+    }));
+  }
+
+  @Test
+  public void testConcurrencyLimit(TestContext context) throws Exception {
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:start")
+            .delay(500)
+            .transform(simple("${body}-OK"));
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").toCamel("direct:start").setMaxConcurrency(1).setMaxPending(1)));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    Async async = context.async(3);
+    vertx.eventBus().request("test", "first").onComplete(context.asyncAssertSuccess(reply -> {
+      context.assertEquals("first-OK", reply.body());
+      async.countDown();
+    }));
+    // Queued until the first message completes.
+    vertx.eventBus().request("test", "second").onComplete(context.asyncAssertSuccess(reply -> {
+      context.assertEquals("second-OK", reply.body());
+      async.countDown();
+    }));
+    vertx.eventBus().request("test", "third").onComplete(context.asyncAssertFailure(err -> {
+      context.assertEquals(OutboundMapping.REJECTED_FAILURE_CODE, ((ReplyException) err).failureCode());
+      context.assertEquals(1L, bridge.metrics().getJsonArray("outbound").getJsonObject(0).getLong("rejected"));
+      async.countDown();
+    }));
+  }
+
+  @Test
+  public void testRateLimit(TestContext context) throws Exception {
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:start")
+            .transform(simple("${body}-OK"));
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").toCamel("direct:start").setRateLimit(10, 1)));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    long begin = System.currentTimeMillis();
+    Async async = context.async(5);
+    for (int i = 0; i < 5; i++) {
+      vertx.eventBus().request("test", "hello").onComplete(context.asyncAssertSuccess(reply -> {
+        context.assertEquals("hello-OK", reply.body());
+        async.countDown();
+      }));
+    }
+    async.awaitSuccess();
+    // 1 message immediately, then 1 every 100 ms.
+    assertThat(System.currentTimeMillis() - begin).isGreaterThanOrEqualTo(350);
+  }
+
+  @Test
+  public void testRateLimitQueueIsBounded(TestContext context) throws Exception {
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:start")
+            .transform(simple("${body}-OK"));
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").toCamel("direct:start").setRateLimit(1, 1).setMaxDelayed(1)));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    Async async = context.async(3);
+    // The first message is sent immediately, the second is delayed, and the third does not fit in the queue.
+    for (int i = 0; i < 2; i++) {
+      vertx.eventBus().request("test", "hello").onComplete(context.asyncAssertSuccess(reply -> async.countDown()));
+    }
+    vertx.eventBus().request("test", "hello").onComplete(context.asyncAssertFailure(failure -> {
+      context.assertEquals(OutboundMapping.REJECTED_FAILURE_CODE, ((ReplyException) failure).failureCode());
+      async.countDown();
+    }));
+    async.awaitSuccess();
+    assertThat(bridge.metrics().getJsonArray("outbound").getJsonObject(0).getLong("rateRejected")).isEqualTo(1L);
+  }
+
+  @Test
+  public void testCircuitBreaker(TestContext context) throws Exception {
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:start")
+            .throwException(new IllegalStateException("down"));
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").toCamel("direct:start")
+            .setCircuitBreaker(new CircuitBreakerOptions().setMinimumCalls(2).setOpenDuration(60000))));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    Async async = context.async();
+    vertx.eventBus().request("test", "1").onComplete(context.asyncAssertFailure(err1 ->
+      vertx.eventBus().request("test", "2").onComplete(context.asyncAssertFailure(err2 -> {
+        context.assertEquals(ReplyFailure.RECIPIENT_FAILURE.toInt(), ((ReplyException) err2).failureCode());
+        vertx.eventBus().request("test", "3").onComplete(context.asyncAssertFailure(err3 -> {
+          context.assertEquals(OutboundMapping.CIRCUIT_OPEN_FAILURE_CODE, ((ReplyException) err3).failureCode());
+          JsonObject metrics = bridge.metrics().getJsonArray("outbound").getJsonObject(0);
+          context.assertEquals("OPEN", metrics.getString("circuitState"));
+          context.assertEquals(1L, metrics.getLong("shortCircuited"));
+          async.complete();
+        }));
+      }))));
+  }
+
+  @Test
+  public void testReplyCache(TestContext context) throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:start")
+            .process(exchange -> calls.incrementAndGet())
+            .transform(simple("${body}-${header.lang}"));
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").toCamel("direct:start").setReplyCache(10, 60000)
+            .setRequestKeyHeaders(Collections.singletonList("lang"))));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    DeliveryOptions en = new DeliveryOptions().addHeader("lang", "en");
+    DeliveryOptions fr = new DeliveryOptions().addHeader("lang", "fr");
+    Async async = context.async();
+    vertx.eventBus().request("test", "hello", en).onComplete(context.asyncAssertSuccess(r1 ->
+      vertx.eventBus().request("test", "hello", en).onComplete(context.asyncAssertSuccess(r2 -> {
+        context.assertEquals("hello-en", r2.body());
+        context.assertEquals("en", r2.headers().get("lang"));
+        vertx.eventBus().request("test", "hello", fr).onComplete(context.asyncAssertSuccess(r3 -> {
+          context.assertEquals("hello-fr", r3.body());
+          context.assertEquals(2, calls.get());
+          JsonObject metrics = bridge.metrics().getJsonArray("outbound").getJsonObject(0);
+          context.assertEquals(1L, metrics.getLong("cacheHits"));
+          context.assertEquals(2L, metrics.getLong("cacheMisses"));
+          async.complete();
+        }));
+      }))));
+  }
+
+  @Test
+  public void testCoalescing(TestContext context) throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:start")
+            .process(exchange -> calls.incrementAndGet())
+            .delay(500)
+            .transform(simple("${body}-OK"));
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").toCamel("direct:start").setCoalescing(true)));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    Async async = context.async(5);
+    for (int i = 0; i < 5; i++) {
+      vertx.eventBus().request("test", "hello").onComplete(context.asyncAssertSuccess(reply -> {
+        context.assertEquals("hello-OK", reply.body());
+        async.countDown();
+      }));
+    }
+    async.awaitSuccess();
+    assertThat(calls.get()).isEqualTo(1);
+    assertThat(bridge.metrics().getJsonArray("outbound").getJsonObject(0).getLong("coalesced")).isEqualTo(4L);
+  }
+
+  @Test
+  public void testDeduplication(TestContext context) throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:start")
+            .process(exchange -> calls.incrementAndGet())
+            .transform(simple("${body}-OK"));
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").toCamel("direct:start").setDeduplication("id", 60000)));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    DeliveryOptions options = new DeliveryOptions().addHeader("id", "payment-1");
+    Async async = context.async();
+    vertx.eventBus().request("test", "pay", options).onComplete(context.asyncAssertSuccess(r1 ->
+      vertx.eventBus().request("test", "pay", options).onComplete(context.asyncAssertFailure(err -> {
+        context.assertEquals(OutboundMapping.DUPLICATE_FAILURE_CODE, ((ReplyException) err).failureCode());
+        context.assertEquals(1, calls.get());
+        context.assertEquals(1L, bridge.metrics().getJsonArray("outbound").getJsonObject(0).getLong("duplicates"));
+        async.complete();
+      }))));
+  }
+
+  @Test
+  public void testDeduplicationForgetsFailedMessages(TestContext context) throws Exception {
+    AtomicBoolean down = new AtomicBoolean(true);
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:start")
+            .process(exchange -> {
+              if (down.getAndSet(false)) {
+                throw new IllegalStateException("down");
+              }
+            })
+            .transform(simple("${body}-OK"));
+        from("direct:slow")
+            .delay(500)
+            .transform(simple("${body}-OK"));
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").toCamel("direct:start").setDeduplication("id", 60000))
+        .addOutboundMapping(fromVertx("slow").toCamel("direct:slow").setDeduplication("id", 60000)
+            .setTimeout(100)));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    DeliveryOptions options = new DeliveryOptions().addHeader("id", "payment-1");
+    Async async = context.async(2);
+    // Failed by the endpoint, the retry is not a duplicate.
+    vertx.eventBus().request("test", "pay", options).onComplete(context.asyncAssertFailure(err ->
+      vertx.eventBus().request("test", "pay", options).onComplete(context.asyncAssertSuccess(reply -> {
+        context.assertEquals("pay-OK", reply.body());
+        async.countDown();
+      }))));
+    // Timed out, the retry is not a duplicate either.
+    vertx.eventBus().request("slow", "pay", options).onComplete(context.asyncAssertFailure(err -> {
+      context.assertEquals(ReplyFailure.TIMEOUT, ((ReplyException) err).failureType());
+      vertx.eventBus().request("slow", "pay", options).onComplete(context.asyncAssertFailure(retry -> {
+        context.assertEquals(ReplyFailure.TIMEOUT, ((ReplyException) retry).failureType());
+        async.countDown();
+      }));
+    }));
+  }
+
+  @Test
+  public void testDeduplicationForgetsRejectedMessages(TestContext context) throws Exception {
+    AtomicBoolean down = new AtomicBoolean(true);
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:start")
+            .process(exchange -> {
+              if (down.get()) {
+                throw new IllegalStateException("down");
+              }
+            })
+            .transform(simple("${body}-OK"));
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").toCamel("direct:start").setDeduplication("id", 60000)
+            .setCircuitBreaker(new CircuitBreakerOptions().setMinimumCalls(2).setOpenDuration(200))));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    DeliveryOptions options = new DeliveryOptions().addHeader("id", "payment-1");
+    Async async = context.async();
+    vertx.eventBus().request("test", "1").onComplete(context.asyncAssertFailure(err1 ->
+      vertx.eventBus().request("test", "2").onComplete(context.asyncAssertFailure(err2 ->
+        vertx.eventBus().request("test", "pay", options).onComplete(context.asyncAssertFailure(err3 -> {
+          // Rejected by the bridge, the identifier is not kept.
+          context.assertEquals(OutboundMapping.CIRCUIT_OPEN_FAILURE_CODE, ((ReplyException) err3).failureCode());
+          down.set(false);
+          vertx.setTimer(300, id -> vertx.eventBus().request("test", "pay", options)
+            .onComplete(context.asyncAssertSuccess(reply -> {
+              context.assertEquals("pay-OK", reply.body());
+              async.complete();
+            })));
+        }))))));
+  }
+
+  @Test
+  public void testUriTemplate(TestContext context) throws Exception {
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:tenant-a")
+            .transform(simple("${body}-a"));
+        from("direct:tenant-b")
+            .transform(simple("${body}-b"));
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").setUriTemplate("direct:tenant-{tenant}").setEndpointCacheSize(1)));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    Async async = context.async();
+    vertx.eventBus().request("test", "hello", new DeliveryOptions().addHeader("tenant", "a"))
+      .onComplete(context.asyncAssertSuccess(r1 -> {
+        context.assertEquals("hello-a", r1.body());
+        vertx.eventBus().request("test", "hello", new DeliveryOptions().addHeader("tenant", "b"))
+          .onComplete(context.asyncAssertSuccess(r2 -> {
+            context.assertEquals("hello-b", r2.body());
+            vertx.eventBus().request("test", "hello").onComplete(context.asyncAssertFailure(err -> {
+              context.assertTrue(err.getMessage().contains("tenant"));
+              JsonObject metrics = bridge.metrics().getJsonArray("outbound").getJsonObject(0);
+              context.assertEquals("direct:tenant-{tenant}", metrics.getString("uri"));
+              context.assertEquals(1, metrics.getInteger("endpoints"));
+              context.assertEquals(1L, metrics.getLong("endpointEvictions"));
+              async.complete();
+            }));
+          }));
+      }));
+  }
+
+  @Test
+  public void testUriTemplateFailuresDoNotOpenTheCircuit(TestContext context) throws Exception {
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:tenant-a")
+            .transform(simple("${body}-a"));
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").setUriTemplate("direct:tenant-{tenant}")
+            .setCircuitBreaker(new CircuitBreakerOptions().setMinimumCalls(2).setOpenDuration(60000))));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    Async async = context.async();
+    vertx.eventBus().request("test", "1").onComplete(context.asyncAssertFailure(err1 ->
+      vertx.eventBus().request("test", "2", new DeliveryOptions().addHeader("tenant", "a?x=y"))
+        .onComplete(context.asyncAssertFailure(err2 -> {
+          context.assertTrue(err2.getMessage().contains("tenant"));
+          vertx.eventBus().request("test", "3", new DeliveryOptions().addHeader("tenant", "a"))
+            .onComplete(context.asyncAssertSuccess(reply -> {
+              context.assertEquals("3-a", reply.body());
+              JsonObject metrics = bridge.metrics().getJsonArray("outbound").getJsonObject(0);
+              context.assertEquals("CLOSED", metrics.getString("circuitState"));
+              async.complete();
+            }));
+        }))));
+  }
+
+  @Test
+  public void testAddressPrefix(TestContext context) throws Exception {
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:eu")
+            .transform(simple("${body}-eu"));
+        from("direct:us")
+            .transform(simple("${body}-us"));
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(OutboundMapping.fromVertxPrefix("orders.").setUriTemplate("direct:{suffix}")));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    Async async = context.async(2);
+    vertx.eventBus().request("orders.eu", "hello").onComplete(context.asyncAssertSuccess(reply -> {
+      context.assertEquals("hello-eu", reply.body());
+      async.countDown();
+    }));
+    vertx.eventBus().request("orders.us", "hello").onComplete(context.asyncAssertSuccess(reply -> {
+      context.assertEquals("hello-us", reply.body());
+      async.countDown();
+    }));
+  }
+
+  @Test
+  public void testLoadBalancing(TestContext context) throws Exception {
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:a")
+            .transform(constant("a"));
+        from("direct:b")
+            .transform(constant("b"));
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").addUri("direct:a").addUri("direct:b")
+            .setLoadBalancing(LoadBalancing.ROUND_ROBIN)));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    Map<Object, Integer> replies = new ConcurrentHashMap<>();
+    Async async = context.async(4);
+    for (int i = 0; i < 4; i++) {
+      vertx.eventBus().request("test", "hello").onComplete(context.asyncAssertSuccess(reply -> {
+        replies.merge(reply.body(), 1, Integer::sum);
+        async.countDown();
+      }));
+    }
+    async.awaitSuccess();
+    assertThat(replies).containsEntry("a", 2).containsEntry("b", 2);
+    JsonObject metrics = bridge.metrics().getJsonArray("outbound").getJsonObject(0);
+    assertThat(metrics.getJsonArray("targets").getJsonObject(1).getLong("sent")).isEqualTo(2L);
+  }
+
+  @Test
+  public void testFailoverRetriesOnTheNextEndpoint(TestContext context) throws Exception {
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:a")
+            .throwException(new IllegalStateException("down"));
+        from("direct:b")
+            .transform(simple("${body}-b"));
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").addUri("direct:a").addUri("direct:b")
+            .setLoadBalancing(LoadBalancing.FAILOVER).setUnhealthyThreshold(2, 60000)));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    // The first two messages fail on the first endpoint and are retried on the second one, the third one skips the
+    // unhealthy endpoint.
+    for (int i = 0; i < 3; i++) {
+      Async async = context.async();
+      vertx.eventBus().request("test", "hello").onComplete(context.asyncAssertSuccess(reply -> {
+        context.assertEquals("hello-b", reply.body());
+        async.complete();
+      }));
+      async.awaitSuccess();
+    }
+    JsonArray targets = bridge.metrics().getJsonArray("outbound").getJsonObject(0).getJsonArray("targets");
+    assertThat(targets.getJsonObject(0).getLong("sent")).isEqualTo(2L);
+    assertThat(targets.getJsonObject(0).getLong("failures")).isEqualTo(2L);
+    assertThat(targets.getJsonObject(0).getBoolean("healthy")).isFalse();
+    assertThat(targets.getJsonObject(1).getLong("sent")).isEqualTo(3L);
+  }
+
+  @Test
+  public void testPriorityAddress(TestContext context) throws Exception {
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:start")
+            .delay(200)
+            .transform(simple("${body}-OK"));
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").toCamel("direct:start").setMaxConcurrency(1).setMaxPending(10)
+            .addPriorityAddress("test.urgent", 10)));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    List<Object> replies = Collections.synchronizedList(new ArrayList<>());
+    Async async = context.async(4);
+    for (String body : Arrays.asList("first", "bulk-1", "bulk-2")) {
+      vertx.eventBus().request("test", body).onComplete(context.asyncAssertSuccess(reply -> {
+        replies.add(reply.body());
+        async.countDown();
+      }));
+    }
+    await().atMost(DEFAULT_TIMEOUT).until(() ->
+        bridge.metrics().getJsonArray("outbound").getJsonObject(0).getInteger("pending") == 2);
+    vertx.eventBus().request("test.urgent", "urgent").onComplete(context.asyncAssertSuccess(reply -> {
+      replies.add(reply.body());
+      async.countDown();
+    }));
+    async.awaitSuccess();
+    // The urgent message overtakes the pending bulk messages.
+    assertThat(replies).containsExactly("first-OK", "urgent-OK", "bulk-1-OK", "bulk-2-OK");
+  }
+
+  @Test
+  public void testPriorityHeaderIsClamped(TestContext context) throws Exception {
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:start")
+            .delay(200)
+            .transform(simple("${body}-OK"));
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").toCamel("direct:start").setMaxConcurrency(1).setMaxPending(10)
+            .setPriorityHeader("priority").setPriorityRange(0, 5).addPriorityAddress("test.urgent", 10)));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    List<Object> replies = Collections.synchronizedList(new ArrayList<>());
+    Async async = context.async(3);
+    vertx.eventBus().request("test", "first").onComplete(context.asyncAssertSuccess(reply -> {
+      replies.add(reply.body());
+      async.countDown();
+    }));
+    vertx.eventBus().request("test", "greedy", new DeliveryOptions().addHeader("priority", "1000000"))
+      .onComplete(context.asyncAssertSuccess(reply -> {
+        replies.add(reply.body());
+        async.countDown();
+      }));
+    await().atMost(DEFAULT_TIMEOUT).until(() ->
+        bridge.metrics().getJsonArray("outbound").getJsonObject(0).getInteger("pending") == 1);
+    vertx.eventBus().request("test.urgent", "urgent").onComplete(context.asyncAssertSuccess(reply -> {
+      replies.add(reply.body());
+      async.countDown();
+    }));
+    async.awaitSuccess();
+    // The header value is clamped to 5, below the priority of the urgent address.
+    assertThat(replies).containsExactly("first-OK", "urgent-OK", "greedy-OK");
+  }
+
+  @Test
+  public void testSpool() throws Exception {
+    MockEndpoint endpoint = (MockEndpoint) camel.getComponent("mock").createEndpoint("mock:result");
+    camel.addEndpoint("result", endpoint);
+    AtomicBoolean down = new AtomicBoolean(true);
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:start")
+            .process(exchange -> {
+              if (down.get()) {
+                throw new IllegalStateException("down");
+              }
+            })
+            .to("result");
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").toCamel("direct:start")
+            .setSpool(new SpoolOptions().setDirectory(Files.createTempDirectory("spool").toString())
+                .setRetryDelay(100))));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    vertx.eventBus().send("test", "1");
+    vertx.eventBus().send("test", "2");
+    vertx.eventBus().send("test", "3");
+    await().atMost(DEFAULT_TIMEOUT).until(() ->
+        bridge.metrics().getJsonArray("outbound").getJsonObject(0).getInteger("spoolSize") == 3);
+    assertThat(endpoint.getExchanges()).isEmpty();
+
+    // The endpoint recovers, the messages are replayed in order.
+    down.set(false);
+    await().atMost(DEFAULT_TIMEOUT).until(() -> endpoint.getExchanges().size() == 3);
+    assertThat(endpoint.getExchanges()).extracting(exchange -> exchange.getIn().getBody())
+        .containsExactly("1", "2", "3");
+    assertThat(bridge.metrics().getJsonArray("outbound").getJsonObject(0).getInteger("spoolSize")).isZero();
+  }
+
+  @Test
+  public void testSpoolDropsPoisonMessages() throws Exception {
+    MockEndpoint endpoint = (MockEndpoint) camel.getComponent("mock").createEndpoint("mock:result");
+    camel.addEndpoint("result", endpoint);
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:start")
+            .process(exchange -> {
+              if ("poison".equals(exchange.getIn().getBody())) {
+                throw new IllegalStateException("poison");
+              }
+            })
+            .to("result");
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").toCamel("direct:start")
+            .setSpool(new SpoolOptions().setDirectory(Files.createTempDirectory("spool").toString())
+                .setRetryDelay(500).setMaxReplayAttempts(2).setDeadLetterAddress("dead"))));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    List<Object> dead = Collections.synchronizedList(new ArrayList<>());
+    vertx.eventBus().<TypedMessage>consumer("dead", message -> dead.add(message.body().body()));
+    vertx.eventBus().send("test", "poison");
+    // The poison message stays in the journal for the retry delay, between its two attempts.
+    await().atMost(DEFAULT_TIMEOUT).until(() ->
+        bridge.metrics().getJsonArray("outbound").getJsonObject(0).getInteger("spoolSize") == 1);
+    // Spooled behind the poison message, which no longer blocks it once dropped.
+    vertx.eventBus().send("test", "ok");
+    await().atMost(DEFAULT_TIMEOUT).until(() -> endpoint.getExchanges().size() == 1);
+    assertThat(endpoint.getExchanges().get(0).getIn().getBody()).isEqualTo("ok");
+    await().atMost(DEFAULT_TIMEOUT).until(() -> dead.size() == 1);
+    assertThat(dead).containsExactly("poison");
+    JsonObject metrics = bridge.metrics().getJsonArray("outbound").getJsonObject(0);
+    assertThat(metrics.getLong("spoolDropped")).isEqualTo(1L);
+    assertThat(metrics.getInteger("spoolSize")).isZero();
+  }
+
+  @Test
+  public void testStreaming(TestContext context) throws Exception {
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:start")
+            .convertBodyTo(String.class)
+            .transform(simple("${body}-OK"));
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").toCamel("direct:start").setBlocking(true).setStreaming(true)));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    Async async = context.async();
+    sendChunk(Arrays.asList("hello", " worl", "d!"), 0).onComplete(context.asyncAssertSuccess(reply -> {
+      context.assertEquals("hello world!-OK", reply.body());
+      async.complete();
+    }));
+  }
+
+  private Future<Message<Object>> sendChunk(List<String> chunks, int sequence) {
+    boolean end = sequence == chunks.size() - 1;
+    DeliveryOptions options = new DeliveryOptions()
+        .addHeader(OutboundMapping.STREAM_ID_HEADER, "stream-1")
+        .addHeader(OutboundMapping.STREAM_SEQUENCE_HEADER, Integer.toString(sequence))
+        .addHeader(OutboundMapping.STREAM_END_HEADER, Boolean.toString(end));
+    Future<Message<Object>> reply = vertx.eventBus().request("test", Buffer.buffer(chunks.get(sequence)), options);
+    // The next chunk is only sent once this one is acknowledged.
+    return end ? reply : reply.compose(ack -> sendChunk(chunks, sequence + 1));
+  }
+
+  @Test
+  public void testStreamingFromFile(TestContext context) throws Exception {
+    File file = File.createTempFile("stream", ".txt");
+    Files.write(file.toPath(), "hello file".getBytes());
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:start")
+            .convertBodyTo(String.class)
+            .transform(simple("${body}-OK"));
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").toCamel("direct:start").setBlocking(true).setStreaming(true)
+            .setStreamFileDirectory(file.getParent())));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    Async async = context.async();
+    vertx.eventBus().request("test", null,
+        new DeliveryOptions().addHeader(OutboundMapping.STREAM_FILE_HEADER, file.getName()))
+        .onComplete(context.asyncAssertSuccess(reply -> {
+          context.assertEquals("hello file-OK", reply.body());
+          async.complete();
+        }));
+  }
+
+  @Test
+  public void testStreamingFromFileOutsideOfTheDirectory(TestContext context) throws Exception {
+    File directory = Files.createTempDirectory("stream").toFile();
+    File link = new File(directory, "passwd");
+    Files.createSymbolicLink(link.toPath(), new File("/etc/passwd").toPath());
+    AtomicInteger calls = new AtomicInteger();
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:start")
+            .convertBodyTo(String.class)
+            .process(exchange -> calls.incrementAndGet());
+      }
+    });
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel)
+        .addOutboundMapping(fromVertx("test").toCamel("direct:start").setBlocking(true).setStreaming(true)
+            .setStreamFileDirectory(directory.getAbsolutePath())));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    Async async = context.async(3);
+    for (String name : Arrays.asList("../../etc/passwd", "/etc/passwd", "passwd")) {
+      vertx.eventBus().request("test", null, new DeliveryOptions().addHeader(OutboundMapping.STREAM_FILE_HEADER, name))
+          .onComplete(context.asyncAssertFailure(err -> async.countDown()));
+    }
+    async.awaitSuccess();
+    // The symbolic link is only detected when the file is opened, the exchange fails without reading it.
+    assertThat(calls.get()).isZero();
+  }
+
+  @Test
+  public void testWriteStream(TestContext context) throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    camel.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("direct:start")
+            .process(exchange -> latch.await())
+            .to("mock:out");
+      }
+    });
+    MockEndpoint endpoint = camel.getEndpoint("mock:out", MockEndpoint.class);
+
+    bridge = CamelBridge.create(vertx, new CamelBridgeOptions(camel));
+
+    camel.start();
+    BridgeHelper.startBlocking(bridge);
+
+    WriteStream<Object> stream = bridge.writeStream("direct:start").setWriteQueueMaxSize(2);
+    AtomicBoolean drained = new AtomicBoolean();
+    stream.drainHandler(v -> drained.set(true));
+    stream.write("a");
+    stream.write(new TypedMessage("b").putHeader("key", "value"));
+    // The first exchange is blocked in the route, so the queue is full.
+    assertThat(stream.writeQueueFull()).isTrue();
+
+    latch.countDown();
+    await().atMost(DEFAULT_TIMEOUT).untilAtomic(drained, is(true));
+    Async async = context.async();
+    stream.end().onComplete(context.asyncAssertSuccess(v -> async.complete()));
+    async.await();
+
+    assertThat(endpoint.getExchanges()).hasSize(2);
+    assertThat(endpoint.getExchanges().get(0).getIn().getBody()).isEqualTo("a");
+    assertThat(endpoint.getExchanges().get(1).getIn().getBody()).isEqualTo("b");
+    assertThat(endpoint.getExchanges().get(1).getIn().getHeader("key")).isEqualTo("value");
+  }
+
   @Test
   public void testWithBlocking() throws Exception {
     AtomicBoolean calledSpy = new AtomicBoolean();
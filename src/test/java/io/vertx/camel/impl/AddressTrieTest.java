@@ -0,0 +1,52 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks the behavior of the {@link AddressTrie}.
+ */
+public class AddressTrieTest {
+
+  @Test
+  public void testLongestPrefixMatch() {
+    AddressTrie<String> trie = new AddressTrie<>();
+    assertThat(trie.isEmpty()).isTrue();
+    trie.put("orders.", "orders");
+    trie.put("orders.eu.", "eu");
+    trie.put("payments", "payments");
+
+    assertThat(trie.match("orders.us")).isEqualTo("orders");
+    assertThat(trie.match("orders.eu.fr")).isEqualTo("eu");
+    assertThat(trie.match("orders.eu")).isEqualTo("orders");
+    assertThat(trie.match("payments")).isEqualTo("payments");
+    assertThat(trie.match("orders")).isNull();
+    assertThat(trie.match("__vertx.reply.1")).isNull();
+    assertThat(trie.match("")).isNull();
+  }
+
+  @Test
+  public void testInvalidPrefixes() {
+    AddressTrie<String> trie = new AddressTrie<>();
+    trie.put("orders.", "orders");
+    assertThatThrownBy(() -> trie.put("orders.", "again")).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> trie.put("", "empty")).isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.core.buffer.Buffer;
+import org.apache.camel.CamelContext;
+import org.apache.camel.ExtendedCamelContext;
+import org.apache.camel.Message;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.spi.TypeConverterRegistry;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of the {@link BodyConverter}.
+ */
+public class BodyConverterTest {
+
+  private DefaultCamelContext camel;
+
+  @Before
+  public void setUp() {
+    camel = new DefaultCamelContext();
+    VertxTypeConverters.register(camel.getTypeConverterRegistry());
+    camel.start();
+  }
+
+  @After
+  public void tearDown() {
+    camel.stop();
+  }
+
+  private Message message(Object body) {
+    return message(camel, body);
+  }
+
+  private static Message message(CamelContext context, Object body) {
+    Message msg = new DefaultExchange(context).getIn();
+    msg.setBody(body);
+    return msg;
+  }
+
+  /**
+   * Creates a view of the Camel context counting the lookups in its type converter registry.
+   */
+  private CamelContext counting(AtomicInteger lookups) {
+    TypeConverterRegistry registry = camel.getTypeConverterRegistry();
+    TypeConverterRegistry countingRegistry = proxy(TypeConverterRegistry.class, (proxy, method, args) -> {
+      if (method.getName().equals("lookup")) {
+        lookups.incrementAndGet();
+      }
+      return delegate(registry, method, args);
+    });
+    return proxy(ExtendedCamelContext.class, (proxy, method, args) ->
+      method.getName().equals("getTypeConverterRegistry") ? countingRegistry : delegate(camel, method, args));
+  }
+
+  private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+    return type.cast(Proxy.newProxyInstance(BodyConverterTest.class.getClassLoader(), new Class<?>[] { type },
+      handler));
+  }
+
+  private static Object delegate(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  @Test
+  public void testBodyAlreadyOfTheTargetType() {
+    BodyConverter converter = new BodyConverter(CharSequence.class);
+    String body = "hello";
+    assertThat(converter.convert(message(body))).isSameAs(body);
+  }
+
+  @Test
+  public void testConversionIsResolvedOncePerBodyClass() {
+    BodyConverter converter = new BodyConverter(String.class);
+    assertThat(converter.convert(message(Buffer.buffer("hello")))).isEqualTo("hello");
+    assertThat(converter.convert(message(Buffer.buffer("world")))).isEqualTo("world");
+    assertThat(converter.convert(message(42))).isEqualTo("42");
+    assertThat(converter.convert(message(null))).isNull();
+  }
+
+  @Test
+  public void testRegistryIsConsultedOncePerBodyClass() {
+    AtomicInteger lookups = new AtomicInteger();
+    CamelContext context = counting(lookups);
+    BodyConverter converter = new BodyConverter(String.class);
+    for (int i = 0; i < 5; i++) {
+      assertThat(converter.convert(message(context, Buffer.buffer("hello-" + i)))).isEqualTo("hello-" + i);
+    }
+    assertThat(lookups.get()).isEqualTo(1);
+
+    assertThat(converter.convert(message(context, 42))).isEqualTo("42");
+    assertThat(converter.convert(message(context, 43))).isEqualTo("43");
+    assertThat(lookups.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testWithoutBodyType() {
+    BodyConverter converter = new BodyConverter(null);
+    Object body = new Object();
+    assertThat(converter.convert(message(body))).isSameAs(body);
+
+    org.fusesource.hawtbuf.Buffer hawtbuf = new org.fusesource.hawtbuf.Buffer("hello".getBytes(StandardCharsets.UTF_8));
+    assertThat(converter.convert(message(hawtbuf))).isEqualTo(Buffer.buffer("hello"));
+  }
+
+}
@@ -0,0 +1,82 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks the behavior of the {@link ChunkedInputStream}.
+ */
+public class ChunkedInputStreamTest {
+
+  @Test
+  public void testReassembly() throws IOException {
+    ChunkedInputStream stream = new ChunkedInputStream(4);
+    AtomicInteger acks = new AtomicInteger();
+    stream.write(Buffer.buffer("hello"), acks::incrementAndGet);
+    stream.write(Buffer.buffer(" world"), acks::incrementAndGet);
+    stream.end();
+    // Acknowledged when the reader starts consuming the chunk.
+    assertThat(acks.get()).isZero();
+
+    byte[] bytes = new byte[3];
+    assertThat(stream.read(bytes, 0, 3)).isEqualTo(3);
+    assertThat(acks.get()).isEqualTo(1);
+    StringBuilder content = new StringBuilder(new String(bytes, 0, 3));
+    int read;
+    while ((read = stream.read(bytes, 0, 3)) > 0) {
+      content.append(new String(bytes, 0, read));
+    }
+    assertThat(content.toString()).isEqualTo("hello world");
+    assertThat(acks.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testWindow() {
+    ChunkedInputStream stream = new ChunkedInputStream(2);
+    assertThat(stream.write(Buffer.buffer("a"), () -> { })).isTrue();
+    assertThat(stream.write(Buffer.buffer("b"), () -> { })).isFalse();
+  }
+
+  @Test
+  public void testFailure() {
+    ChunkedInputStream stream = new ChunkedInputStream(2);
+    stream.fail(new IllegalStateException("broken"));
+    assertThatThrownBy(stream::read).isInstanceOf(IOException.class);
+  }
+
+  @Test
+  public void testCloseAcknowledgesQueuedChunks() {
+    ChunkedInputStream stream = new ChunkedInputStream(4);
+    AtomicInteger acks = new AtomicInteger();
+    AtomicInteger closed = new AtomicInteger();
+    stream.closeHandler(closed::incrementAndGet);
+    stream.write(Buffer.buffer("a"), acks::incrementAndGet);
+    stream.close();
+    assertThat(acks.get()).isEqualTo(1);
+    assertThat(closed.get()).isEqualTo(1);
+    // Discarded once closed.
+    stream.write(Buffer.buffer("b"), acks::incrementAndGet);
+    assertThat(acks.get()).isEqualTo(2);
+  }
+}
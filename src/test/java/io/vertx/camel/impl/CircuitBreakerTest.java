@@ -0,0 +1,94 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.camel.CircuitBreakerOptions;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of the {@link CircuitBreaker}.
+ */
+public class CircuitBreakerTest {
+
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+  @Test
+  public void testOpensOnFailureRate() {
+    CircuitBreaker breaker = new CircuitBreaker(new CircuitBreakerOptions().setWindowSize(4).setMinimumCalls(4)
+      .setFailureRateThreshold(50));
+    record(breaker, false, FAST);
+    record(breaker, true, FAST);
+    record(breaker, false, FAST);
+    assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    record(breaker, true, FAST);
+    assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    assertThat(breaker.tryAcquire()).isFalse();
+  }
+
+  @Test
+  public void testOnlyTheLastOutcomesAreConsidered() {
+    CircuitBreaker breaker = new CircuitBreaker(new CircuitBreakerOptions().setWindowSize(4).setMinimumCalls(4)
+      .setFailureRateThreshold(75));
+    record(breaker, true, FAST);
+    record(breaker, true, FAST);
+    for (int i = 0; i < 10; i++) {
+      record(breaker, false, FAST);
+    }
+    record(breaker, true, FAST);
+    record(breaker, true, FAST);
+    assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+  }
+
+  @Test
+  public void testOpensOnSlowCallRate() {
+    CircuitBreaker breaker = new CircuitBreaker(new CircuitBreakerOptions().setMinimumCalls(2)
+      .setSlowCallDuration(100).setSlowCallRateThreshold(100));
+    record(breaker, false, SLOW);
+    record(breaker, false, SLOW);
+    assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+  }
+
+  @Test
+  public void testHalfOpenProbes() throws InterruptedException {
+    CircuitBreaker breaker = new CircuitBreaker(new CircuitBreakerOptions().setMinimumCalls(1)
+      .setOpenDuration(50).setHalfOpenProbes(1));
+    record(breaker, true, FAST);
+    assertThat(breaker.tryAcquire()).isFalse();
+
+    Thread.sleep(100);
+    // A single probe is let through, and fails.
+    assertThat(breaker.tryAcquire()).isTrue();
+    assertThat(breaker.tryAcquire()).isFalse();
+    breaker.record(true, FAST);
+    assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+
+    Thread.sleep(100);
+    assertThat(breaker.tryAcquire()).isTrue();
+    breaker.record(false, FAST);
+    assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    assertThat(breaker.tryAcquire()).isTrue();
+  }
+
+  private void record(CircuitBreaker breaker, boolean failed, long latency) {
+    assertThat(breaker.tryAcquire()).isTrue();
+    breaker.record(failed, latency);
+  }
+}
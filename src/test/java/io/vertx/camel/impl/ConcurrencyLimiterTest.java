@@ -0,0 +1,90 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of the {@link ConcurrencyLimiter}.
+ */
+public class ConcurrencyLimiterTest {
+
+  @Test
+  public void testFixedLimit() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, false);
+    assertThat(limiter.tryAcquire()).isTrue();
+    assertThat(limiter.tryAcquire()).isTrue();
+    assertThat(limiter.tryAcquire()).isFalse();
+    limiter.release(1_000_000, true);
+    assertThat(limiter.tryAcquire()).isTrue();
+    assertThat(limiter.limit()).isEqualTo(2);
+  }
+
+  @Test
+  public void testLimitGrowsWhileLatencyIsStable() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, true);
+    int initial = limiter.limit();
+    for (int i = 0; i < 1000; i++) {
+      saturate(limiter);
+      limiter.release(1_000_000, false);
+    }
+    assertThat(limiter.limit()).isGreaterThan(initial).isLessThanOrEqualTo(100);
+  }
+
+  @Test
+  public void testLimitShrinksWhenLatencyIncreases() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, true);
+    for (int i = 0; i < 1000; i++) {
+      saturate(limiter);
+      limiter.release(1_000_000, false);
+    }
+    int before = limiter.limit();
+    for (int i = 0; i < 10; i++) {
+      saturate(limiter);
+      limiter.release(10_000_000, false);
+    }
+    assertThat(limiter.limit()).isLessThan(before);
+
+    for (int i = 0; i < 100; i++) {
+      saturate(limiter);
+      limiter.release(1_000_000, true);
+    }
+    assertThat(limiter.limit()).isEqualTo(1);
+  }
+
+  @Test
+  public void testCancelKeepsTheLimit() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, true);
+    int initial = limiter.limit();
+    saturate(limiter);
+    for (int i = 0; i < initial; i++) {
+      limiter.cancel();
+    }
+    assertThat(limiter.limit()).isEqualTo(initial);
+    for (int i = 0; i < initial; i++) {
+      assertThat(limiter.tryAcquire()).isTrue();
+    }
+    assertThat(limiter.tryAcquire()).isFalse();
+  }
+
+  private void saturate(ConcurrencyLimiter limiter) {
+    while (limiter.tryAcquire()) {
+      // acquire all the slots
+    }
+  }
+}
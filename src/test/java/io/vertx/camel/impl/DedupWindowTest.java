@@ -0,0 +1,89 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of the {@link DedupWindow}.
+ */
+public class DedupWindowTest {
+
+  @Test
+  public void testDuplicatesInWindow() {
+    DedupWindow window = new DedupWindow(60000);
+    for (int i = 0; i < 10000; i++) {
+      assertThat(window.add("id-" + i)).isTrue();
+    }
+    for (int i = 0; i < 10000; i++) {
+      assertThat(window.add("id-" + i)).isFalse();
+    }
+  }
+
+  @Test
+  public void testIdentifiersAreForgotten() throws InterruptedException {
+    DedupWindow window = new DedupWindow(50);
+    assertThat(window.add("a")).isTrue();
+    Thread.sleep(70);
+    // Still remembered in the previous generation.
+    assertThat(window.add("a")).isFalse();
+    Thread.sleep(150);
+    assertThat(window.add("a")).isTrue();
+  }
+
+  @Test
+  public void testRemove() {
+    DedupWindow window = new DedupWindow(60000);
+    assertThat(window.add("a")).isTrue();
+    window.remove("a");
+    assertThat(window.add("a")).isTrue();
+    assertThat(window.add("a")).isFalse();
+  }
+
+  @Test
+  public void testLongSetRemoveKeepsProbeSequences() {
+    DedupWindow.LongSet set = new DedupWindow.LongSet();
+    // Values sharing the same home slot, stored one after the other.
+    for (long i = 1; i <= 20; i++) {
+      set.add(i << 32 | i);
+    }
+    assertThat(set.remove(5L << 32 | 5L)).isTrue();
+    assertThat(set.remove(5L << 32 | 5L)).isFalse();
+    assertThat(set.size()).isEqualTo(19);
+    for (long i = 1; i <= 20; i++) {
+      assertThat(set.contains(i << 32 | i)).isEqualTo(i != 5);
+    }
+  }
+
+  @Test
+  public void testLongSet() {
+    DedupWindow.LongSet set = new DedupWindow.LongSet();
+    assertThat(set.add(0)).isTrue();
+    assertThat(set.add(0)).isFalse();
+    for (long i = 1; i < 1000; i++) {
+      assertThat(set.add(i * 0x9E3779B97F4A7C15L)).isTrue();
+    }
+    assertThat(set.size()).isEqualTo(1000);
+    assertThat(set.contains(0)).isTrue();
+    assertThat(set.contains(999 * 0x9E3779B97F4A7C15L)).isTrue();
+    assertThat(set.contains(42)).isFalse();
+    set.clear();
+    assertThat(set.size()).isZero();
+    assertThat(set.contains(0)).isFalse();
+  }
+}
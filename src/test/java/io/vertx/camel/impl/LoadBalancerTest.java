@@ -0,0 +1,128 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.camel.LoadBalancing;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of the {@link LoadBalancer}.
+ */
+public class LoadBalancerTest {
+
+  private DefaultCamelContext camel;
+  private final List<Target> targets = new ArrayList<>();
+  private final List<String> uris = Arrays.asList("direct:a", "direct:b", "direct:c");
+
+  @Before
+  public void setUp() throws Exception {
+    camel = new DefaultCamelContext();
+    camel.start();
+    for (String uri : uris) {
+      targets.add(new Target(camel.getEndpoint(uri).createProducer()));
+    }
+  }
+
+  @After
+  public void tearDown() {
+    camel.stop();
+  }
+
+  @Test
+  public void testRoundRobin() {
+    LoadBalancer balancer = new LoadBalancer(LoadBalancing.ROUND_ROBIN, targets, uris, Arrays.asList(1, 1, 1), 3, 5000);
+    assertThat(select(balancer, 6)).containsEntry(0, 2).containsEntry(1, 2).containsEntry(2, 2);
+  }
+
+  @Test
+  public void testWeighted() {
+    LoadBalancer balancer = new LoadBalancer(LoadBalancing.WEIGHTED, targets, uris, Arrays.asList(5, 1, 1), 3, 5000);
+    assertThat(select(balancer, 70)).containsEntry(0, 50).containsEntry(1, 10).containsEntry(2, 10);
+  }
+
+  @Test
+  public void testLeastInFlight() {
+    LoadBalancer balancer = new LoadBalancer(LoadBalancing.LEAST_IN_FLIGHT, targets, uris, Arrays.asList(1, 1, 1), 3, 5000);
+    targets.get(0).acquire();
+    targets.get(2).acquire();
+    assertThat(balancer.select()).isSameAs(targets.get(1));
+  }
+
+  @Test
+  public void testFailoverSkipsUnhealthyTargets() {
+    LoadBalancer balancer = new LoadBalancer(LoadBalancing.FAILOVER, targets, uris, Arrays.asList(1, 1, 1), 3, 5000);
+    assertThat(balancer.select()).isSameAs(targets.get(0));
+    for (int i = 0; i < 3; i++) {
+      balancer.record(targets.get(0), true);
+    }
+    assertThat(balancer.select()).isSameAs(targets.get(1));
+    assertThat(balancer.metrics().getJsonObject(0).getBoolean("healthy")).isFalse();
+    assertThat(balancer.metrics().getJsonObject(0).getLong("failures")).isEqualTo(3L);
+
+    // All unhealthy: the first target is used.
+    for (int i = 0; i < 3; i++) {
+      balancer.record(targets.get(1), true);
+      balancer.record(targets.get(2), true);
+    }
+    assertThat(balancer.select()).isSameAs(targets.get(0));
+  }
+
+  @Test
+  public void testFailoverRetriesOnTheNextHealthyTarget() {
+    LoadBalancer balancer = new LoadBalancer(LoadBalancing.FAILOVER, targets, uris, Arrays.asList(1, 1, 1), 1, 5000);
+    balancer.record(targets.get(1), true);
+    // The second target is unhealthy, so it is skipped.
+    assertThat(balancer.next(targets.get(0))).isSameAs(targets.get(2));
+    // Each target is tried once.
+    assertThat(balancer.next(targets.get(2))).isNull();
+  }
+
+  @Test
+  public void testOnlyFailoverRetries() {
+    LoadBalancer balancer = new LoadBalancer(LoadBalancing.ROUND_ROBIN, targets, uris, Arrays.asList(1, 1, 1), 3, 5000);
+    assertThat(balancer.next(targets.get(0))).isNull();
+  }
+
+  @Test
+  public void testCoolDown() throws InterruptedException {
+    LoadBalancer balancer = new LoadBalancer(LoadBalancing.FAILOVER, targets, uris, Arrays.asList(1, 1, 1), 2, 100);
+    balancer.record(targets.get(0), true);
+    assertThat(balancer.select()).isSameAs(targets.get(0));
+    balancer.record(targets.get(0), true);
+    assertThat(balancer.select()).isSameAs(targets.get(1));
+    Thread.sleep(150);
+    assertThat(balancer.select()).isSameAs(targets.get(0));
+  }
+
+  private Map<Integer, Integer> select(LoadBalancer balancer, int count) {
+    Map<Integer, Integer> selections = new HashMap<>();
+    for (int i = 0; i < count; i++) {
+      selections.merge(targets.indexOf(balancer.select()), 1, Integer::sum);
+    }
+    return selections;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of the {@link PendingQueue}.
+ */
+public class PendingQueueTest {
+
+  @Test
+  public void testPriorityOrder() {
+    PendingQueue<String> queue = new PendingQueue<>(10, 60000);
+    assertThat(queue.offer("bulk-1", 0)).isNull();
+    assertThat(queue.offer("bulk-2", 0)).isNull();
+    assertThat(queue.offer("urgent", 1)).isNull();
+    assertThat(queue.size()).isEqualTo(3);
+    assertThat(queue.poll()).isEqualTo("urgent");
+    assertThat(queue.poll()).isEqualTo("bulk-1");
+    assertThat(queue.poll()).isEqualTo("bulk-2");
+    assertThat(queue.poll()).isNull();
+  }
+
+  @Test
+  public void testEvictionWhenFull() {
+    PendingQueue<String> queue = new PendingQueue<>(2, 60000);
+    queue.offer("bulk-1", 0);
+    queue.offer("bulk-2", 0);
+    // Same priority, the new message is rejected.
+    assertThat(queue.offer("bulk-3", 0)).isEqualTo("bulk-3");
+    // Higher priority, the last bulk message is evicted.
+    assertThat(queue.offer("urgent", 1)).isEqualTo("bulk-2");
+    assertThat(queue.poll()).isEqualTo("urgent");
+    assertThat(queue.poll()).isEqualTo("bulk-1");
+  }
+
+  @Test
+  public void testAging() throws InterruptedException {
+    PendingQueue<String> queue = new PendingQueue<>(10, 20);
+    queue.offer("bulk", 0);
+    Thread.sleep(100);
+    // Waited more than the aging, the bulk message goes first.
+    queue.offer("urgent", 1);
+    assertThat(queue.poll()).isEqualTo("bulk");
+    assertThat(queue.poll()).isEqualTo("urgent");
+  }
+
+  @Test
+  public void testNoCapacity() {
+    PendingQueue<String> queue = new PendingQueue<>(0, 1000);
+    assertThat(queue.offer("a", 10)).isEqualTo("a");
+    assertThat(queue.isEmpty()).isTrue();
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of the {@link ReplyCache}.
+ */
+public class ReplyCacheTest {
+
+  @Test
+  public void testLeastRecentlyUsedEviction() {
+    ReplyCache cache = new ReplyCache(2, 60000);
+    Reply a = new Reply("a", null);
+    Reply b = new Reply("b", null);
+    cache.put("a", a);
+    cache.put("b", b);
+    assertThat(cache.get("a")).isSameAs(a);
+    // "b" is now the least recently used entry.
+    cache.put("c", new Reply("c", null));
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.get("b")).isNull();
+    assertThat(cache.get("a")).isSameAs(a);
+    assertThat(cache.hits()).isEqualTo(2);
+    assertThat(cache.misses()).isEqualTo(1);
+  }
+
+  @Test
+  public void testExpiration() throws InterruptedException {
+    ReplyCache cache = new ReplyCache(10, 50);
+    cache.put("a", new Reply("a", null));
+    assertThat(cache.get("a")).isNotNull();
+    Thread.sleep(100);
+    assertThat(cache.get("a")).isNull();
+    assertThat(cache.size()).isZero();
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of the {@link Spool}.
+ */
+public class SpoolTest {
+
+  @Test
+  public void testAppendAndRemoveInOrder() throws IOException {
+    Spool spool = new Spool(file(), 4096);
+    assertThat(spool.append(Buffer.buffer("a"))).isTrue();
+    assertThat(spool.append(Buffer.buffer("b"))).isTrue();
+    assertThat(spool.size()).isEqualTo(2);
+    assertThat(spool.peek().toString()).isEqualTo("a");
+    spool.remove();
+    assertThat(spool.peek().toString()).isEqualTo("b");
+    spool.remove();
+    assertThat(spool.isEmpty()).isTrue();
+    assertThat(spool.peek()).isNull();
+    spool.close();
+  }
+
+  @Test
+  public void testRecordsSurviveReopening() throws IOException {
+    File file = file();
+    Spool spool = new Spool(file, 4096);
+    spool.append(Buffer.buffer("a"));
+    spool.append(Buffer.buffer("b"));
+    spool.remove();
+    spool.close();
+
+    spool = new Spool(file, 4096);
+    assertThat(spool.size()).isEqualTo(1);
+    assertThat(spool.peek().toString()).isEqualTo("b");
+    spool.close();
+  }
+
+  @Test
+  public void testWrapAroundWhenFull() throws IOException {
+    File file = file();
+    Spool spool = new Spool(file, 2048);
+    Buffer record = Buffer.buffer(new byte[500]);
+    int count = 0;
+    while (spool.append(record)) {
+      count++;
+    }
+    assertThat(count).isEqualTo(4);
+    // Removing the first record frees enough space at the beginning of the file.
+    spool.remove();
+    assertThat(spool.append(Buffer.buffer(new byte[496]).appendString("last"))).isTrue();
+    assertThat(spool.append(Buffer.buffer("full"))).isFalse();
+    assertThat(spool.size()).isEqualTo(4);
+    spool.close();
+
+    // The records are never moved, so the journal reopens as it was.
+    spool = new Spool(file, 2048);
+    assertThat(spool.size()).isEqualTo(4);
+    for (int i = 0; i < 3; i++) {
+      assertThat(spool.peek().length()).isEqualTo(500);
+      spool.remove();
+    }
+    assertThat(spool.peek().getString(496, 500)).isEqualTo("last");
+    spool.remove();
+    assertThat(spool.isEmpty()).isTrue();
+    spool.close();
+  }
+
+  @Test
+  public void testRecordTooLargeForTheFreeSpace() throws IOException {
+    Spool spool = new Spool(file(), 2048);
+    assertThat(spool.append(Buffer.buffer(new byte[1000]))).isTrue();
+    assertThat(spool.append(Buffer.buffer(new byte[900]))).isTrue();
+    spool.remove();
+    // 1004 bytes are free at the beginning, and 128 at the end: not enough for 1100 bytes in a single region.
+    assertThat(spool.append(Buffer.buffer(new byte[1100]))).isFalse();
+    assertThat(spool.append(Buffer.buffer(new byte[1000]))).isTrue();
+    assertThat(spool.peek().length()).isEqualTo(900);
+    spool.remove();
+    assertThat(spool.peek().length()).isEqualTo(1000);
+    spool.close();
+  }
+
+  private static File file() throws IOException {
+    return new File(Files.createTempDirectory("spool").toFile(), "test.spool");
+  }
+}
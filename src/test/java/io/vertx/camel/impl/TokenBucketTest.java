@@ -0,0 +1,52 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.camel.OutboundMapping;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the behavior of the {@link TokenBucket}.
+ */
+public class TokenBucketTest {
+
+  @Test
+  public void testBurstThenDelay() {
+    TokenBucket bucket = new TokenBucket(1, 2);
+    assertThat(bucket.reserve()).isZero();
+    assertThat(bucket.reserve()).isZero();
+    // The waiting callers are served in order, one per second.
+    assertThat(bucket.reserve()).isBetween(900L, 1000L);
+    assertThat(bucket.reserve()).isBetween(1900L, 2000L);
+  }
+
+  @Test
+  public void testTryAcquireDoesNotReserve() {
+    TokenBucket bucket = new TokenBucket(1, 1);
+    assertThat(bucket.tryAcquire()).isTrue();
+    assertThat(bucket.tryAcquire()).isFalse();
+    // The failed attempt did not take a permit.
+    assertThat(bucket.reserve()).isBetween(900L, 1000L);
+  }
+
+  @Test
+  public void testCreate() {
+    assertThat(TokenBucket.create(OutboundMapping.fromVertx("address"))).isNull();
+    assertThat(TokenBucket.create(OutboundMapping.fromVertx("address").setRateLimit(10, 1))).isNotNull();
+  }
+}
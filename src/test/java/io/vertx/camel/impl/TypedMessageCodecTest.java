@@ -0,0 +1,185 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.camel.TypedMessage;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks the behavior of the {@link TypedMessageCodec}.
+ */
+public class TypedMessageCodecTest {
+
+  private final TypedMessageCodec codec = new TypedMessageCodec();
+
+  @Test
+  public void testWireRoundTrip() {
+    Date date = new Date();
+    TypedMessage msg = new TypedMessage(new JsonObject().put("name", "bob"))
+      .putHeader("string", "value")
+      .putHeader("boolean", true)
+      .putHeader("int", 42)
+      .putHeader("long", 42L)
+      .putHeader("double", 4.2)
+      .putHeader("bytes", new byte[]{1, 2, 3})
+      .putHeader("date", date)
+      .putHeader("other", new StringBuilder("text"));
+
+    // Start at a non-zero position, as the event bus does.
+    Buffer buffer = Buffer.buffer().appendString("prefix");
+    codec.encodeToWire(buffer, msg);
+    TypedMessage decoded = codec.decodeFromWire(6, buffer);
+
+    assertThat(decoded.body()).isEqualTo(new JsonObject().put("name", "bob"));
+    assertThat(decoded.header("string")).isEqualTo("value");
+    assertThat(decoded.header("boolean")).isEqualTo(true);
+    assertThat(decoded.header("int")).isEqualTo(42);
+    assertThat(decoded.header("long")).isEqualTo(42L);
+    assertThat(decoded.header("double")).isEqualTo(4.2);
+    assertThat((byte[]) decoded.header("bytes")).containsExactly(1, 2, 3);
+    assertThat(decoded.header("date")).isEqualTo(date);
+    assertThat(decoded.header("other")).isEqualTo("text");
+  }
+
+  @Test
+  public void testHeaderDictionary() {
+    TypedMessage msg = new TypedMessage("hello")
+      .putHeader("JMSCorrelationID", "id")
+      .putHeader("tenant", "acme")
+      .putHeader("unknown", 1);
+
+    Buffer plain = Buffer.buffer();
+    codec.encodeToWire(plain, msg);
+    Buffer encoded = Buffer.buffer();
+    TypedMessageCodec withDictionary = new TypedMessageCodec(Collections.singletonList("tenant"), -1);
+    withDictionary.encodeToWire(encoded, msg);
+
+    assertThat(encoded.length()).isLessThan(plain.length());
+    TypedMessage decoded = withDictionary.decodeFromWire(0, encoded);
+    assertThat(decoded.headers()).containsEntry("JMSCorrelationID", "id").containsEntry("tenant", "acme")
+      .containsEntry("unknown", 1);
+  }
+
+  @Test
+  public void testUnknownDictionaryIndex() {
+    TypedMessage msg = new TypedMessage("hello").putHeader("tenant", "acme");
+    Buffer encoded = Buffer.buffer();
+    new TypedMessageCodec(Collections.singletonList("tenant"), -1).encodeToWire(encoded, msg);
+
+    // The receiver does not know the name added to the dictionary by the sender.
+    assertThatThrownBy(() -> codec.decodeFromWire(0, encoded))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("dictionary");
+  }
+
+  @Test
+  public void testSmallerThanJson() {
+    TypedMessage msg = new TypedMessage(new JsonObject().put("id", 42).put("name", "bob"))
+      .putHeader("JMSCorrelationID", "c-1")
+      .putHeader("JMSTimestamp", 1700000000000L)
+      .putHeader("CamelRedelivered", false)
+      .putHeader("CamelRedeliveryCounter", 0);
+    JsonObject json = new JsonObject().put("body", msg.body()).put("headers", new JsonObject(msg.headers()));
+
+    Buffer encoded = Buffer.buffer();
+    codec.encodeToWire(encoded, msg);
+    assertThat(encoded.length()).isLessThan(json.toBuffer().length() / 2);
+  }
+
+  @Test
+  public void testCompression() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      builder.append("some repetitive content ");
+    }
+    TypedMessage msg = new TypedMessage(builder.toString()).putHeader("count", 1000);
+
+    Buffer plain = Buffer.buffer();
+    codec.encodeToWire(plain, msg);
+    Buffer compressed = Buffer.buffer().appendString("prefix");
+    TypedMessageCodec withCompression = new TypedMessageCodec(Collections.emptyList(), 1024);
+    withCompression.encodeToWire(compressed, msg);
+
+    assertThat(compressed.length() - 6).isLessThan(plain.length() / 10);
+    TypedMessage decoded = withCompression.decodeFromWire(6, compressed);
+    assertThat(decoded.body()).isEqualTo(builder.toString());
+    assertThat(decoded.header("count")).isEqualTo(1000);
+  }
+
+  @Test
+  public void testDecompressedSizeIsBounded() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      builder.append("some repetitive content ");
+    }
+    Buffer compressed = Buffer.buffer();
+    new TypedMessageCodec(Collections.emptyList(), 1024).encodeToWire(compressed, new TypedMessage(builder.toString()));
+
+    TypedMessageCodec bounded = new TypedMessageCodec(Collections.emptyList(), 1024, 1024);
+    assertThatThrownBy(() -> bounded.decodeFromWire(0, compressed)).isInstanceOf(IllegalStateException.class);
+
+    // A forged size is rejected before the allocation.
+    Buffer forged = Buffer.buffer().appendInt(6).appendByte((byte) 1)
+      .appendBytes(new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07});
+    assertThatThrownBy(() -> codec.decodeFromWire(0, forged)).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void testNumbersRoundTrip() {
+    TypedMessage msg = new TypedMessage(null)
+      .putHeader("min-int", Integer.MIN_VALUE)
+      .putHeader("max-int", Integer.MAX_VALUE)
+      .putHeader("min-long", Long.MIN_VALUE)
+      .putHeader("negative", -1)
+      .putHeader("old-date", new Date(-1000L));
+
+    Buffer buffer = Buffer.buffer();
+    codec.encodeToWire(buffer, msg);
+    TypedMessage decoded = codec.decodeFromWire(0, buffer);
+    assertThat(decoded.body()).isNull();
+    assertThat(decoded.headers()).isEqualTo(msg.headers());
+  }
+
+  @Test
+  public void testUnsupportedBodyOnTheWire() {
+    assertThatThrownBy(() -> codec.encodeToWire(Buffer.buffer(), new TypedMessage(new Object())))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testLocalTransformCopiesMutableValues() {
+    byte[] bytes = {1, 2, 3};
+    Date date = new Date();
+    JsonObject body = new JsonObject().put("name", "bob");
+    TypedMessage msg = new TypedMessage(body).putHeader("bytes", bytes).putHeader("date", date).putHeader("int", 1);
+
+    TypedMessage copy = codec.transform(msg);
+    assertThat(copy.body()).isEqualTo(body).isNotSameAs(body);
+    assertThat((byte[]) copy.header("bytes")).containsExactly(1, 2, 3).isNotSameAs(bytes);
+    assertThat(copy.header("date")).isEqualTo(date).isNotSameAs(date);
+    assertThat(copy.header("int")).isEqualTo(1);
+    assertThat(copy.headers()).isNotSameAs(msg.headers());
+  }
+
+}
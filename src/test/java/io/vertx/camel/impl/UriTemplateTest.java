@@ -0,0 +1,104 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.camel.TypedMessage;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks the behavior of the {@link UriTemplate}.
+ */
+public class UriTemplateTest {
+
+  private final Vertx vertx = Vertx.vertx();
+
+  @After
+  public void tearDown() throws Exception {
+    vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testResolve() throws Exception {
+    UriTemplate template = new UriTemplate("jms:queue:orders-{tenant}?timeout={{jms.timeout}}&priority={priority}");
+    Message<Object> message = receive("body", new DeliveryOptions().addHeader("tenant", "acme")
+      .addHeader("priority", "4"));
+    assertThat(template.resolve(message)).isEqualTo("jms:queue:orders-acme?timeout={{jms.timeout}}&priority=4");
+    assertThat(template.toString()).isEqualTo("jms:queue:orders-{tenant}?timeout={{jms.timeout}}&priority={priority}");
+  }
+
+  @Test
+  public void testResolveFromTypedHeaders() throws Exception {
+    vertx.eventBus().registerDefaultCodec(TypedMessage.class, new TypedMessageCodec());
+    UriTemplate template = new UriTemplate("direct:{id}");
+    Message<Object> message = receive(new TypedMessage("body").putHeader("id", 42), new DeliveryOptions());
+    assertThat(template.resolve(message)).isEqualTo("direct:42");
+  }
+
+  @Test
+  public void testMissingHeader() throws Exception {
+    UriTemplate template = new UriTemplate("direct:{id}");
+    Message<Object> message = receive("body", new DeliveryOptions());
+    assertThatThrownBy(() -> template.resolve(message)).isInstanceOf(IllegalArgumentException.class)
+      .hasMessageContaining("id");
+  }
+
+  @Test
+  public void testValueWithUriDelimiter() throws Exception {
+    UriTemplate template = new UriTemplate("jms:queue:orders-{tenant}");
+    for (String tenant : new String[] {"acme?username=admin", "acme&x=y", "a:b", "../acme", "acme#x", "{acme}",
+      "..%2Facme", "acme%3Fx=y", "..\\acme", "..", ".", ""}) {
+      Message<Object> message = receive("body", new DeliveryOptions().addHeader("tenant", tenant));
+      assertThatThrownBy(() -> template.resolve(message)).isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("tenant");
+    }
+    Message<Object> message = receive("body", new DeliveryOptions());
+    for (String suffix : new String[] {"orders/eu", "..", "orders%2Feu"}) {
+      assertThatThrownBy(() -> new UriTemplate("file:data/{suffix}").resolve(message, suffix))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("suffix");
+    }
+    assertThat(new UriTemplate("file:data/{suffix}").resolve(message, "orders.eu")).isEqualTo("file:data/orders.eu");
+  }
+
+  @Test
+  public void testInvalidTemplates() {
+    assertThatThrownBy(() -> new UriTemplate("direct:{id")).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new UriTemplate("direct:{}")).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new UriTemplate("direct:{{id}")).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private Message<Object> receive(Object body, DeliveryOptions options) throws Exception {
+    CompletableFuture<Message<Object>> received = new CompletableFuture<>();
+    MessageConsumer<Object> consumer = vertx.eventBus().consumer("template", received::complete);
+    consumer.completion().onSuccess(v -> vertx.eventBus().send("template", body, options));
+    try {
+      return received.get(10, TimeUnit.SECONDS);
+    } finally {
+      consumer.unregister().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+  }
+}
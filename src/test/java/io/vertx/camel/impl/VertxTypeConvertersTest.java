@@ -0,0 +1,110 @@
+/*
+ *  Copyright (c) 2011-2015 The original author or authors
+ *  ------------------------------------------------------
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *       The Eclipse Public License is available at
+ *       http://www.eclipse.org/legal/epl-v10.html
+ *
+ *       The Apache License v2.0 is available at
+ *       http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.camel.impl;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.apache.camel.TypeConverter;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the conversions registered by {@link VertxTypeConverters}.
+ */
+public class VertxTypeConvertersTest {
+
+  private DefaultCamelContext camel;
+  private TypeConverter converter;
+
+  @Before
+  public void setUp() {
+    camel = new DefaultCamelContext();
+    VertxTypeConverters.register(camel.getTypeConverterRegistry());
+    camel.start();
+    converter = camel.getTypeConverter();
+  }
+
+  @After
+  public void tearDown() {
+    camel.stop();
+  }
+
+  @Test
+  public void testJsonObjectConversions() {
+    JsonObject json = new JsonObject().put("name", "bob").put("age", 42);
+    Map<?, ?> map = converter.convertTo(Map.class, json);
+    assertThat(map).isSameAs(json.getMap());
+
+    Map<String, Object> source = new HashMap<>();
+    source.put("name", "alice");
+    JsonObject converted = converter.convertTo(JsonObject.class, source);
+    assertThat(converted.getString("name")).isEqualTo("alice");
+    assertThat(converted.getMap()).isSameAs(source);
+  }
+
+  @Test
+  public void testJsonArrayConversions() {
+    JsonArray array = new JsonArray().add("a").add("b");
+    List<?> list = converter.convertTo(List.class, array);
+    assertThat(list).isSameAs(array.getList());
+
+    List<String> source = Arrays.asList("c", "d");
+    JsonArray converted = converter.convertTo(JsonArray.class, source);
+    assertThat(converted).isEqualTo(new JsonArray().add("c").add("d"));
+    assertThat(converted.getList()).isSameAs(source);
+  }
+
+  @Test
+  public void testBufferConversions() throws Exception {
+    byte[] bytes = "hello".getBytes(StandardCharsets.UTF_8);
+    Buffer buffer = Buffer.buffer(bytes);
+
+    assertThat(converter.convertTo(byte[].class, buffer)).isEqualTo(bytes);
+    assertThat(converter.convertTo(Buffer.class, bytes)).isEqualTo(buffer);
+
+    ByteBuffer nio = converter.convertTo(ByteBuffer.class, buffer);
+    assertThat(nio.remaining()).isEqualTo(bytes.length);
+    assertThat(converter.convertTo(Buffer.class, ByteBuffer.wrap(bytes))).isEqualTo(buffer);
+
+    InputStream stream = converter.convertTo(InputStream.class, buffer);
+    assertThat(stream.readAllBytes()).isEqualTo(bytes);
+    assertThat(converter.convertTo(Buffer.class, new ByteArrayInputStream(bytes))).isEqualTo(buffer);
+
+    assertThat(converter.convertTo(String.class, buffer)).isEqualTo("hello");
+    assertThat(converter.convertTo(Buffer.class, "hello")).isEqualTo(buffer);
+  }
+
+  @Test
+  public void testHawtbufConversion() {
+    org.fusesource.hawtbuf.Buffer hawtbuf = new org.fusesource.hawtbuf.Buffer("hello".getBytes(StandardCharsets.UTF_8));
+    assertThat(converter.convertTo(Buffer.class, hawtbuf)).isEqualTo(Buffer.buffer("hello"));
+  }
+
+}